@@ -7,9 +7,13 @@ import me.megadedbeb.thegreatcold.data.DataManager;
 import me.megadedbeb.thegreatcold.freeze.FreezeManager;
 import me.megadedbeb.thegreatcold.heat.HeatSourceManager;
 import me.megadedbeb.thegreatcold.heat.CustomHeatManager;
+import me.megadedbeb.thegreatcold.heat.HeaterType;
 import me.megadedbeb.thegreatcold.stage.StageManager;
 import me.megadedbeb.thegreatcold.listener.*;
 import me.megadedbeb.thegreatcold.listener.HeatedHatListener;
+import me.megadedbeb.thegreatcold.util.MaterialTable;
+import me.megadedbeb.thegreatcold.util.ParticleEmitter;
+import me.megadedbeb.thegreatcold.util.WorkerPool;
 import org.bukkit.Bukkit;
 import org.bukkit.NamespacedKey;
 import org.bukkit.inventory.ItemStack;
@@ -22,6 +26,7 @@ import org.bukkit.ChatColor;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 public class TheGreatColdPlugin extends JavaPlugin {
     private static TheGreatColdPlugin instance;
@@ -31,6 +36,8 @@ public class TheGreatColdPlugin extends JavaPlugin {
     private FreezeManager freezeManager;
     private HeatSourceManager heatSourceManager;
     private CustomHeatManager customHeatManager;
+    private WorkerPool workerPool;
+    private ParticleEmitter particleEmitter;
 
     // key to mark Heated Hat
     private NamespacedKey heatedHatKey;
@@ -45,8 +52,16 @@ public class TheGreatColdPlugin extends JavaPlugin {
         heatedHatKey = new NamespacedKey(this, "heated_hat");
         heatedHatDurKey = new NamespacedKey(this, "heated_hat_dur");
 
+        // классификация материалов для горячих путей (один раз на запуск)
+        MaterialTable.build();
+
         configManager = new ConfigManager(this);
         dataManager = new DataManager(this);
+        dataManager.startWriteBehind(configManager.getSaveFlushIntervalTicks(), configManager.getSaveMaxIntervalMillis());
+        workerPool = new WorkerPool(configManager.getWorkerThreads(), getLogger());
+        particleEmitter = new ParticleEmitter(this, configManager.getParticleViewDistance(),
+                configManager.getParticleFullDetailDistance(), configManager.getParticleBudgetPerTick());
+        particleEmitter.start();
 
         customHeatManager = new CustomHeatManager(this, dataManager);
 
@@ -70,7 +85,7 @@ public class TheGreatColdPlugin extends JavaPlugin {
         Bukkit.getPluginManager().registerEvents(new HeatedHatListener(this), this);
 
         // commands
-        GreatColdCommandExecutor commandExecutor = new GreatColdCommandExecutor(stageManager, freezeManager, configManager, dataManager, customHeatManager);
+        GreatColdCommandExecutor commandExecutor = new GreatColdCommandExecutor(stageManager, freezeManager, configManager, dataManager, customHeatManager, heatSourceManager);
         if (getCommand("greatcold") != null) {
             getCommand("greatcold").setExecutor(commandExecutor);
             getCommand("greatcold").setTabCompleter(new GreatColdTabCompleter());
@@ -79,83 +94,28 @@ public class TheGreatColdPlugin extends JavaPlugin {
         }
 
         // recipes
-        registerSmallHeaterRecipe();
-        registerSeaHeaterRecipe();
-        registerMegaFurnaceRecipe();
+        registerHeaterRecipes();
         registerHeatedHatRecipe();
 
         if (!stageManager.isStageSet()) stageManager.startStage(0, false);
         stageManager.startAutoStageIfEnabled();
     }
 
-    private void registerSmallHeaterRecipe() {
-        ItemStack result = new ItemStack(Material.SHROOMLIGHT);
-        ItemMeta meta = result.getItemMeta();
-        if (meta != null) {
-            NamespacedKey key = new NamespacedKey(this, "heater_type");
-            meta.getPersistentDataContainer().set(key, PersistentDataType.STRING, "small_heater");
-            meta.setDisplayName(ChatColor.GOLD + "Небольшой обогреватель");
-            meta.setLore(List.of("Обогревает небольшую зону, но и требует " + ChatColor.GOLD + "немного топлива" + ChatColor.RESET + ".",
-                    "Нельзя сломать."));
-            result.setItemMeta(meta);
+    // рецепты обогревателей — из секций heaters.<тип>.recipe в config.yml
+    private void registerHeaterRecipes() {
+        for (HeaterType t : customHeatManager.getHeaterTypes().all()) {
+            if (t.getRecipeShape() == null) continue;
+            try {
+                ShapedRecipe recipe = new ShapedRecipe(new NamespacedKey(this, t.getId()), customHeatManager.createHeaterItem(t));
+                recipe.shape(t.getRecipeShape().toArray(new String[0]));
+                for (Map.Entry<Character, Material> e : t.getRecipeIngredients().entrySet()) {
+                    recipe.setIngredient(e.getKey(), e.getValue());
+                }
+                Bukkit.addRecipe(recipe);
+            } catch (IllegalArgumentException | IllegalStateException e) {
+                getLogger().warning("Рецепт heaters." + t.getId() + " не зарегистрирован: " + e.getMessage());
+            }
         }
-        NamespacedKey rkey = new NamespacedKey(this, "small_heater");
-        ShapedRecipe recipe = new ShapedRecipe(rkey, result);
-        recipe.shape("AAA", "BFB", "CMC");
-        recipe.setIngredient('A', Material.AMETHYST_SHARD);
-        recipe.setIngredient('B', Material.BRICK);
-        recipe.setIngredient('F', Material.BLAST_FURNACE);
-        recipe.setIngredient('C', Material.COPPER_INGOT);
-        recipe.setIngredient('M', Material.MAGMA_BLOCK);
-        Bukkit.addRecipe(recipe);
-    }
-
-    private void registerSeaHeaterRecipe() {
-        ItemStack result = new ItemStack(Material.SEA_LANTERN);
-        ItemMeta meta = result.getItemMeta();
-        if (meta != null) {
-            NamespacedKey key = new NamespacedKey(this, "heater_type");
-            meta.getPersistentDataContainer().set(key, PersistentDataType.STRING, "sea_heater");
-            meta.setDisplayName(ChatColor.BLUE + "Морской обогреватель");
-            String line1 = "Использует силу " + ChatColor.BLUE + "Морского" + ChatColor.RESET + " " + ChatColor.BLUE + "источника" + ChatColor.RESET + " и создает теплый пар на большой территории,";
-            String line2 = "вмещает мало, но " + ChatColor.GOLD + "расходует много топлива" + ChatColor.RESET + ". Нельзя сломать.";
-            meta.setLore(List.of(line1, line2));
-            result.setItemMeta(meta);
-        }
-        NamespacedKey rkey = new NamespacedKey(this, "sea_heater");
-        ShapedRecipe recipe = new ShapedRecipe(rkey, result);
-        recipe.shape("ABA", "CDC", "EFE");
-        recipe.setIngredient('A', Material.PRISMARINE_SHARD);
-        recipe.setIngredient('B', Material.BUCKET);
-        recipe.setIngredient('C', Material.PRISMARINE_CRYSTALS);
-        recipe.setIngredient('D', Material.CONDUIT);
-        recipe.setIngredient('E', Material.TURTLE_SCUTE);
-        recipe.setIngredient('F', Material.MAGMA_BLOCK);
-        Bukkit.addRecipe(recipe);
-    }
-
-    private void registerMegaFurnaceRecipe() {
-        ItemStack result = new ItemStack(Material.MAGMA_BLOCK);
-        ItemMeta meta = result.getItemMeta();
-        if (meta != null) {
-            NamespacedKey key = new NamespacedKey(this, "heater_type");
-            meta.getPersistentDataContainer().set(key, PersistentDataType.STRING, "mega_furnace");
-            meta.setDisplayName(ChatColor.RED + "Мегапечь");
-            String line1 = "Распространяет " + ChatColor.RED + "адский жар" + ChatColor.RESET + " на огромную территорию,";
-            String line2 = "вмещает и требует " + ChatColor.GOLD + "много топлива" + ChatColor.RESET + ". Нельзя сломать.";
-            meta.setLore(List.of(line1, line2));
-            result.setItemMeta(meta);
-        }
-        NamespacedKey rkey = new NamespacedKey(this, "mega_furnace");
-        ShapedRecipe recipe = new ShapedRecipe(rkey, result);
-        recipe.shape("AMA", "DND", "BEB");
-        recipe.setIngredient('A', Material.MAGMA_CREAM);
-        recipe.setIngredient('M', Material.GOLD_INGOT);
-        recipe.setIngredient('D', Material.DIAMOND_BLOCK);
-        recipe.setIngredient('N', Material.NETHER_STAR);
-        recipe.setIngredient('B', Material.BLAZE_POWDER);
-        recipe.setIngredient('E', Material.LAVA_BUCKET);
-        Bukkit.addRecipe(recipe);
     }
 
     private void registerHeatedHatRecipe() {
@@ -187,9 +147,13 @@ public class TheGreatColdPlugin extends JavaPlugin {
         if (customHeatManager != null) {
             try { customHeatManager.onDisable(); } catch (Throwable ignored) {}
         }
-        if (dataManager != null) dataManager.saveAll();
         if (stageManager != null) stageManager.onDisable();
         if (freezeManager != null) freezeManager.onDisable();
+        if (heatSourceManager != null) heatSourceManager.onDisable();
+        if (particleEmitter != null) particleEmitter.stop();
+        // последним: дождаться отложенной записи и сохранить синхронно
+        if (dataManager != null) dataManager.shutdown();
+        if (workerPool != null) workerPool.shutdown();
     }
 
     public static TheGreatColdPlugin getInstance() { return instance; }
@@ -199,6 +163,8 @@ public class TheGreatColdPlugin extends JavaPlugin {
     public FreezeManager getFreezeManager() { return freezeManager; }
     public HeatSourceManager getHeatSourceManager() { return heatSourceManager; }
     public CustomHeatManager getCustomHeatManager() { return customHeatManager; }
+    public WorkerPool getWorkerPool() { return workerPool; }
+    public ParticleEmitter getParticleEmitter() { return particleEmitter; }
     public NamespacedKey getHeatedHatKey() { return heatedHatKey; }
     public NamespacedKey getHeatedHatDurKey() { return heatedHatDurKey; }
 }
\ No newline at end of file
@@ -8,21 +8,17 @@ import me.megadedbeb.thegreatcold.freeze.FreezeStage;
 import me.megadedbeb.thegreatcold.stage.StageManager;
 import me.megadedbeb.thegreatcold.heat.CustomHeatManager;
 import me.megadedbeb.thegreatcold.heat.CustomHeatSource;
+import me.megadedbeb.thegreatcold.heat.HeatSourceManager;
+import me.megadedbeb.thegreatcold.heat.HeaterType;
 import org.bukkit.Bukkit;
 import org.bukkit.Location;
-import org.bukkit.NamespacedKey;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
-import org.bukkit.inventory.meta.ItemMeta;
-import org.bukkit.Material;
-import org.bukkit.persistence.PersistentDataType;
-import org.bukkit.ChatColor;
 
 import java.util.Collection;
-import java.util.List;
 import java.util.Map;
 
 public class GreatColdCommandExecutor implements CommandExecutor {
@@ -31,20 +27,22 @@ public class GreatColdCommandExecutor implements CommandExecutor {
     private final ConfigManager configManager;
     private final DataManager dataManager;
     private final CustomHeatManager customHeatManager;
+    private final HeatSourceManager heatSourceManager;
 
-    public GreatColdCommandExecutor(StageManager s, FreezeManager f, ConfigManager c, DataManager d, CustomHeatManager ch) {
+    public GreatColdCommandExecutor(StageManager s, FreezeManager f, ConfigManager c, DataManager d, CustomHeatManager ch, HeatSourceManager h) {
         this.stageManager = s;
         this.freezeManager = f;
         this.configManager = c;
         this.dataManager = d;
         this.customHeatManager = ch;
+        this.heatSourceManager = h;
     }
 
     @Override
     public boolean onCommand(CommandSender sender, Command cmd, String lab, String[] args) {
         if (!sender.hasPermission("greatcold.admin")) return true;
         if (args.length == 0) {
-            sender.sendMessage("§7Доступные подкоманды: stage, autostage, stageinfo, setperiod, freeze, unfreeze, listheaters, giveheater");
+            sender.sendMessage("§7Доступные подкоманды: stage, autostage, stageinfo, setperiod, freeze, unfreeze, listheaters, giveheater, stats, rescanheat");
             return true;
         }
         switch (args[0].toLowerCase()) {
@@ -90,7 +88,7 @@ public class GreatColdCommandExecutor implements CommandExecutor {
                         sender.sendMessage("§aТекущий этап " + st + " сделан бесконечным.");
                     }
                     dataManager.setStageInfiniteFlag(true);
-                    dataManager.saveAll();
+                    dataManager.markDirty();
                 } else {
                     long mins = Long.parseLong(val);
                     long millis = mins * 60L * 1000L;
@@ -149,52 +147,49 @@ public class GreatColdCommandExecutor implements CommandExecutor {
                     sender.sendMessage("§cOnly players can receive items.");
                     return true;
                 }
+                Collection<HeaterType> types = customHeatManager.getHeaterTypes().all();
                 if (args.length < 2) {
-                    sender.sendMessage("§cИспользование: /greatcold giveheater <small_heater|sea_heater|mega_furnace>");
+                    sender.sendMessage("§cИспользование: /greatcold giveheater <"
+                            + String.join("|", types.stream().map(HeaterType::getId).toList()) + ">");
                     return true;
                 }
-                String type = args[1].toLowerCase();
-                ItemStack item;
-                ItemMeta meta;
-                NamespacedKey key = new NamespacedKey(TheGreatColdPlugin.getInstance(), "heater_type");
-                if ("small_heater".equals(type) || "small".equals(type)) {
-                    item = new ItemStack(Material.SHROOMLIGHT);
-                    meta = item.getItemMeta();
-                    if (meta != null) {
-                        meta.setDisplayName(ChatColor.GOLD + "Небольшой обогреватель");
-                        meta.setLore(List.of("Обогревает небольшую зону, но и требует " + ChatColor.GOLD + "немного топлива" + ChatColor.RESET + ".",
-                                "Нельзя сломать."));
-                        meta.getPersistentDataContainer().set(key, PersistentDataType.STRING, CustomHeatSource.TYPE_SMALL_HEATER);
-                        item.setItemMeta(meta);
-                    }
-                } else if ("sea_heater".equals(type) || "sea".equals(type)) {
-                    item = new ItemStack(Material.SEA_LANTERN);
-                    meta = item.getItemMeta();
-                    if (meta != null) {
-                        meta.setDisplayName(ChatColor.BLUE + "Морской обогреватель");
-                        meta.setLore(List.of("Использует силу " + ChatColor.BLUE + "Морского" + ChatColor.RESET + " источника, вмещает мало топлива."));
-                        meta.getPersistentDataContainer().set(key, PersistentDataType.STRING, CustomHeatSource.TYPE_SEA_HEATER);
-                        item.setItemMeta(meta);
-                    }
-                } else if ("mega_furnace".equals(type) || "mega".equals(type)) {
-                    item = new ItemStack(Material.MAGMA_BLOCK);
-                    meta = item.getItemMeta();
-                    if (meta != null) {
-                        meta.setDisplayName(ChatColor.RED + "Мегапечь");
-                        meta.setLore(List.of("Мощная печь, вмещает много топлива."));
-                        meta.getPersistentDataContainer().set(key, PersistentDataType.STRING, CustomHeatSource.TYPE_MEGA_FURNACE);
-                        item.setItemMeta(meta);
-                    }
-                } else {
-                    sender.sendMessage("§cНеизвестный тип: " + type);
+                HeaterType type = customHeatManager.getHeaterTypes().find(args[1]);
+                if (type == null) {
+                    sender.sendMessage("§cНеизвестный тип: " + args[1]);
                     return true;
                 }
+                ItemStack item = customHeatManager.createHeaterItem(type);
                 Player p = (Player) sender;
                 Map<Integer, ItemStack> leftover = p.getInventory().addItem(item);
                 if (!leftover.isEmpty()) {
                     p.getWorld().dropItemNaturally(p.getLocation(), item);
                 }
-                p.sendMessage("§aПредмет выдан: " + type);
+                p.sendMessage("§aПредмет выдан: " + type.getId());
+            }
+            case "rescanheat" -> {
+                heatSourceManager.scanWorldForHeatSources();
+                sender.sendMessage("§aИндекс источников тепла сброшен, чанков в очереди сканирования: "
+                        + heatSourceManager.getScanQueueDepth());
+            }
+            case "stats" -> {
+                sender.sendMessage("§bПриродных источников тепла в индексе: §f" + heatSourceManager.getIndexedSourceCount());
+                sender.sendMessage("§bОчередь сканирования чанков: §f" + heatSourceManager.getScanQueueDepth()
+                        + " §7(обработано: " + heatSourceManager.getScanCompletedChunks() + ")");
+                sender.sendMessage("§bПоследний тик сканирования: §f"
+                        + String.format("%.2f", heatSourceManager.getScanLastTickNanos() / 1_000_000.0) + " мс"
+                        + " §7(" + heatSourceManager.getScanLastTickSteps() + " шагов, бюджет "
+                        + String.format("%.2f", heatSourceManager.getScanBudgetNanos() / 1_000_000.0) + " мс)");
+                sender.sendMessage("§bТаяние: §f" + customHeatManager.getMeltBacklogBlocks() + " §7блоков ждут применения, "
+                        + "§f" + customHeatManager.getMeltQueuedHeaters() + " §7обогревателей в очереди, "
+                        + "§f" + customHeatManager.getMeltPlanning() + " §7ищутся (растоплено: " + customHeatManager.getMeltedBlocks() + ")");
+                sender.sendMessage("§bПоследний тик таяния: §f"
+                        + String.format("%.2f", customHeatManager.getMeltLastTickNanos() / 1_000_000.0) + " мс"
+                        + " §7(бюджет " + String.format("%.2f", customHeatManager.getMeltBudgetNanos() / 1_000_000.0) + " мс)");
+                var particles = TheGreatColdPlugin.getInstance().getParticleEmitter();
+                if (particles != null) {
+                    sender.sendMessage("§bЧастицы: §f" + particles.getLastTickPackets() + " §7пакетов за тик (лимит "
+                            + particles.getBudgetPerTick() + ", отброшено всего: " + particles.getDroppedPackets() + ")");
+                }
             }
             default -> sender.sendMessage("§cНеизвестная подкоманда.");
         }
@@ -3,6 +3,7 @@ package me.megadedbeb.thegreatcold.config;
 import me.megadedbeb.thegreatcold.TheGreatColdPlugin;
 import me.megadedbeb.thegreatcold.freeze.FreezeStage;
 import me.megadedbeb.thegreatcold.heat.HeatSourceType;
+import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.entity.Player;
 import org.bukkit.potion.PotionEffect;
@@ -38,6 +39,73 @@ public class ConfigManager {
         return config.getInt("heat_radius." + name, 2);
     }
 
+    /**
+     * Режим полного скана чанков на природные источники тепла (heat_scan.mode):
+     * async — по ChunkSnapshot в фоновом пуле (по умолчанию), sync — старый поколонный скан в основном потоке.
+     */
+    public boolean isAsyncHeatScan() {
+        return !"sync".equalsIgnoreCase(config.getString("heat_scan.mode", "async"));
+    }
+
+    // Бюджет времени (нс) на сканирование чанков за один тик
+    public long getHeatScanBudgetNanos() {
+        return Math.max(50_000L, config.getLong("heat_scan.budget_nanos", 2_000_000L));
+    }
+
+    // Как часто (тики) проверять изменения и отдавать data.yml на отложенную запись
+    public long getSaveFlushIntervalTicks() {
+        return Math.max(1L, config.getLong("persistence.flush_interval_ticks", 100L));
+    }
+
+    // Максимальный интервал (мс) между записями data.yml, даже если ничего не помечено изменённым
+    public long getSaveMaxIntervalMillis() {
+        return Math.max(1000L, config.getLong("persistence.max_interval_seconds", 60L) * 1000L);
+    }
+
+    // Бюджет времени (нс) на таяние снега/льда у обогревателей за один тик (на все обогреватели сразу)
+    public long getMeltBudgetNanos() {
+        return Math.max(50_000L, config.getLong("melt.budget_nanos", 1_000_000L));
+    }
+
+    // Не чаще чем раз в N тиков начинать новый проход таяния у одного обогревателя
+    public int getMeltIntervalTicks() {
+        return Math.max(1, config.getInt("melt.interval_ticks", 100));
+    }
+
+    // Топливо кастомных обогревателей: тип -> {inherit, items: материал или #тег -> минуты}
+    public ConfigurationSection getHeatersSection() {
+        return config.getConfigurationSection("heaters");
+    }
+
+    public ConfigurationSection getHeaterFuelSection() {
+        return config.getConfigurationSection("heater_fuel");
+    }
+
+    // Чем рисовать таблички над обогревателями: text_display или armor_stand
+    public String getHologramBackend() {
+        return config.getString("holograms.backend", "text_display");
+    }
+
+    // Частицы видны только игрокам не дальше N блоков
+    public int getParticleViewDistance() {
+        return Math.max(1, config.getInt("particles.view_distance", 32));
+    }
+
+    // До N блоков частиц полное количество, дальше их всё меньше
+    public int getParticleFullDetailDistance() {
+        return Math.max(0, config.getInt("particles.full_detail_distance", 12));
+    }
+
+    // Не больше N пакетов частиц за тик на весь сервер
+    public int getParticleBudgetPerTick() {
+        return Math.max(1, config.getInt("particles.budget_per_tick", 200));
+    }
+
+    // Кол-во потоков общего фонового пула плагина
+    public int getWorkerThreads() {
+        return Math.max(1, config.getInt("worker_threads", 2));
+    }
+
     // Freeze/обморожение
     public long getStageTimeToNext(FreezeStage stage) {
         // Длительность между получениями стадий (по умолчанию миллисекунды)
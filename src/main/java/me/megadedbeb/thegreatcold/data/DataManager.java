@@ -8,11 +8,32 @@ import org.bukkit.Bukkit;
 import org.bukkit.Location;
 import org.bukkit.configuration.file.YamlConfiguration;
 import org.bukkit.World;
+import org.bukkit.scheduler.BukkitTask;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.*;
-
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+
+/**
+ * Хранение data.yml с отложенной записью (write-behind).
+ *
+ * Изменения только помечают данные «грязными» (markDirty). Раз в flush-интервал основной поток
+ * снимает лёгкий снимок состояния (копии чисел/строк), а сериализация в YAML и запись на диск
+ * выполняются в отдельном потоке: сначала во временный файл, затем атомарной заменой data.yml.
+ * Сколько бы изменений ни случилось между сбросами, на диск уходит одна запись.
+ * saveAll() — синхронная запись (используется при выключении плагина).
+ */
 public class DataManager {
     private final TheGreatColdPlugin plugin;
     private final File dataFile;
@@ -28,7 +49,20 @@ public class DataManager {
     private final Map<String, HeatSourceRegion> savedHeatSources = new HashMap<>();
 
     // сохранённые кастомные источники: key -> map(type, world, x, y, z, fuelMillis)
+    // здесь остаются только записи, не поднятые в память (например, мир не загружен);
+    // живые обогреватели при сохранении берутся из customSourceProvider
     private final Map<String, Map<String, String>> savedCustomSources = new HashMap<>();
+    private Supplier<? extends Collection<CustomHeatSource>> customSourceProvider;
+
+    // --- write-behind ---
+    private final Object writeLock = new Object();
+    private ExecutorService writer;
+    private BukkitTask flushTask;
+    private boolean dirty;
+    private long snapshotSeq;       // только основной поток
+    private long lastWrittenSeq;    // под writeLock
+    private long lastFlushMillis;
+    private long maxIntervalMillis = 60_000L;
 
     public DataManager(TheGreatColdPlugin plugin) {
         this.plugin = plugin;
@@ -95,6 +129,8 @@ public class DataManager {
                     int y = config.getInt("custom_sources." + key + ".y");
                     int z = config.getInt("custom_sources." + key + ".z");
                     long fuel = config.getLong("custom_sources." + key + ".fuelMillis", 0L);
+                    String holoName = config.getString("custom_sources." + key + ".holoName");
+                    String holoFuel = config.getString("custom_sources." + key + ".holoFuel");
                     if (type == null || world == null) continue;
                     Map<String, String> map = new HashMap<>();
                     map.put("type", type);
@@ -103,76 +139,247 @@ public class DataManager {
                     map.put("y", String.valueOf(y));
                     map.put("z", String.valueOf(z));
                     map.put("fuelMillis", String.valueOf(fuel));
+                    if (holoName != null) map.put("holoName", holoName);
+                    if (holoFuel != null) map.put("holoFuel", holoFuel);
                     savedCustomSources.put(key, map);
                 } catch (Exception ignored) {}
             }
         }
     }
 
+    /**
+     * Запускает отложенную запись: раз в flushIntervalTicks пишет, если есть изменения,
+     * и не реже чем раз в maxIntervalMillis — в любом случае (таймеры игроков не помечаются грязными).
+     */
+    public void startWriteBehind(long flushIntervalTicks, long maxIntervalMillis) {
+        if (flushTask != null) return;
+        this.maxIntervalMillis = Math.max(1000L, maxIntervalMillis);
+        this.lastFlushMillis = System.currentTimeMillis();
+        this.writer = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "TheGreatCold-DataWriter");
+            t.setDaemon(true);
+            return t;
+        });
+        long period = Math.max(1L, flushIntervalTicks);
+        flushTask = Bukkit.getScheduler().runTaskTimer(plugin, this::flushIfNeeded, period, period);
+    }
+
+    /** Источник живых кастомных обогревателей для сохранения (вызывается в основном потоке). */
+    public void setCustomSourceProvider(Supplier<? extends Collection<CustomHeatSource>> provider) {
+        this.customSourceProvider = provider;
+    }
+
+    /** Помечает данные изменёнными; запись произойдёт при ближайшем сбросе. */
+    public void markDirty() {
+        dirty = true;
+    }
+
+    private void flushIfNeeded() {
+        long now = System.currentTimeMillis();
+        if (!dirty && now - lastFlushMillis < maxIntervalMillis) return;
+        Snapshot snap = snapshot();
+        lastFlushMillis = now;
+        try {
+            writer.execute(() -> write(snap));
+        } catch (RejectedExecutionException e) {
+            write(snap);
+        }
+    }
+
+    /** Синхронная запись текущего состояния. */
     public void saveAll() {
-        config.set("stage.id", currentStageId);
-        config.set("stage.endMillis", stageEndMillis);
-        config.set("stage.auto", autoStageFlag);
-        config.set("stage.infinite", stageInfiniteFlag);
-
-        if (playerData.isEmpty()) {
-            config.set("players", null);
-        } else {
-            for (Map.Entry<UUID, PlayerFreezeData> e : playerData.entrySet()) {
-                String k = e.getKey().toString();
-                PlayerFreezeData d = e.getValue();
-                config.set("players." + k + ".freezeStage", d.getFreezeStage().id());
-                config.set("players." + k + ".timeInHeat", d.getTimeInHeat());
-                config.set("players." + k + ".timeWithoutHeat", d.getTimeWithoutHeat());
-                config.set("players." + k + ".damageAccumulatorMs", d.getDamageAccumulatorMs());
-                config.set("players." + k + ".inHeat", d.isInHeat());
+        write(snapshot());
+        lastFlushMillis = System.currentTimeMillis();
+    }
 
-                // Сохраняем новые поля для подземной логики
-                config.set("players." + k + ".timeBelowY", d.getTimeBelowY());
-                config.set("players." + k + ".timeAboveY", d.getTimeAboveY());
-                config.set("players." + k + ".undergroundMode", d.isUndergroundMode());
+    /** Останавливает отложенную запись, дожидается очереди записи и сохраняет синхронно. */
+    public void shutdown() {
+        if (flushTask != null) {
+            try { flushTask.cancel(); } catch (Throwable ignored) {}
+            flushTask = null;
+        }
+        if (writer != null) {
+            writer.shutdown();
+            try {
+                if (!writer.awaitTermination(5, TimeUnit.SECONDS)) writer.shutdownNow();
+            } catch (InterruptedException e) {
+                writer.shutdownNow();
+                Thread.currentThread().interrupt();
             }
+            writer = null;
         }
+        saveAll();
+    }
 
-        // Important: do NOT persist natural heat_sources. Keep only custom_sources persisted.
-        config.set("heat_sources", null);
+    // снимок состояния (основной поток): только копии примитивов и строк
+    private Snapshot snapshot() {
+        Snapshot snap = new Snapshot(++snapshotSeq);
+        dirty = false;
+        snap.stageId = currentStageId;
+        snap.stageEndMillis = stageEndMillis;
+        snap.autoStage = autoStageFlag;
+        snap.stageInfinite = stageInfiniteFlag;
+
+        for (Map.Entry<UUID, PlayerFreezeData> e : playerData.entrySet()) {
+            PlayerFreezeData d = e.getValue();
+            PlayerRow row = new PlayerRow();
+            row.key = e.getKey().toString();
+            row.freezeStage = d.getFreezeStage().id();
+            row.timeInHeat = d.getTimeInHeat();
+            row.timeWithoutHeat = d.getTimeWithoutHeat();
+            row.damageAccumulatorMs = d.getDamageAccumulatorMs();
+            row.inHeat = d.isInHeat();
+            row.timeBelowY = d.getTimeBelowY();
+            row.timeAboveY = d.getTimeAboveY();
+            row.undergroundMode = d.isUndergroundMode();
+            snap.players.add(row);
+        }
 
-        if (savedCustomSources.isEmpty()) {
-            config.set("custom_sources", null);
-        } else {
-            for (Map.Entry<String, Map<String, String>> en : savedCustomSources.entrySet()) {
-                String key = en.getKey();
-                Map<String, String> m = en.getValue();
-                config.set("custom_sources." + key + ".type", m.get("type"));
-                config.set("custom_sources." + key + ".world", m.get("world"));
-                config.set("custom_sources." + key + ".x", Integer.parseInt(m.get("x")));
-                config.set("custom_sources." + key + ".y", Integer.parseInt(m.get("y")));
-                config.set("custom_sources." + key + ".z", Integer.parseInt(m.get("z")));
-                config.set("custom_sources." + key + ".fuelMillis", Long.parseLong(m.getOrDefault("fuelMillis","0")));
+        Set<String> liveKeys = new HashSet<>();
+        Collection<CustomHeatSource> live = customSourceProvider != null ? customSourceProvider.get() : null;
+        if (live != null) {
+            for (CustomHeatSource s : live) {
+                Location c = s.getBlockLocation();
+                if (c.getWorld() == null) continue;
+                SourceRow row = new SourceRow();
+                row.key = makeKey(c);
+                row.type = s.getType();
+                row.world = c.getWorld().getName();
+                row.x = s.getBlockX();
+                row.y = s.getBlockY();
+                row.z = s.getBlockZ();
+                row.fuelMillis = s.getFuelMillis();
+                row.holoName = s.getNameLineId() != null ? s.getNameLineId().toString() : null;
+                row.holoFuel = s.getFuelLineId() != null ? s.getFuelLineId().toString() : null;
+                if (liveKeys.add(row.key)) snap.sources.add(row);
             }
         }
+        for (Map.Entry<String, Map<String, String>> en : savedCustomSources.entrySet()) {
+            if (liveKeys.contains(en.getKey())) continue;
+            try {
+                Map<String, String> m = en.getValue();
+                SourceRow row = new SourceRow();
+                row.key = en.getKey();
+                row.type = m.get("type");
+                row.world = m.get("world");
+                row.x = Integer.parseInt(m.get("x"));
+                row.y = Integer.parseInt(m.get("y"));
+                row.z = Integer.parseInt(m.get("z"));
+                row.fuelMillis = Long.parseLong(m.getOrDefault("fuelMillis", "0"));
+                row.holoName = m.get("holoName");
+                row.holoFuel = m.get("holoFuel");
+                snap.sources.add(row);
+            } catch (Exception ignored) {}
+        }
+        return snap;
+    }
 
-        try {
-            config.save(dataFile);
-        } catch (IOException ex) {
-            ex.printStackTrace();
+    // сериализация и запись (поток записи или основной поток при синхронном сохранении)
+    private void write(Snapshot snap) {
+        synchronized (writeLock) {
+            // более новый снимок уже записан (синхронное сохранение обогнало очередь)
+            if (snap.seq <= lastWrittenSeq) return;
+
+            YamlConfiguration out = new YamlConfiguration();
+            out.set("stage.id", snap.stageId);
+            out.set("stage.endMillis", snap.stageEndMillis);
+            out.set("stage.auto", snap.autoStage);
+            out.set("stage.infinite", snap.stageInfinite);
+
+            for (PlayerRow d : snap.players) {
+                String k = d.key;
+                out.set("players." + k + ".freezeStage", d.freezeStage);
+                out.set("players." + k + ".timeInHeat", d.timeInHeat);
+                out.set("players." + k + ".timeWithoutHeat", d.timeWithoutHeat);
+                out.set("players." + k + ".damageAccumulatorMs", d.damageAccumulatorMs);
+                out.set("players." + k + ".inHeat", d.inHeat);
+
+                // Сохраняем новые поля для подземной логики
+                out.set("players." + k + ".timeBelowY", d.timeBelowY);
+                out.set("players." + k + ".timeAboveY", d.timeAboveY);
+                out.set("players." + k + ".undergroundMode", d.undergroundMode);
+            }
+
+            // Important: do NOT persist natural heat_sources. Keep only custom_sources persisted.
+            for (SourceRow m : snap.sources) {
+                String key = m.key;
+                out.set("custom_sources." + key + ".type", m.type);
+                out.set("custom_sources." + key + ".world", m.world);
+                out.set("custom_sources." + key + ".x", m.x);
+                out.set("custom_sources." + key + ".y", m.y);
+                out.set("custom_sources." + key + ".z", m.z);
+                out.set("custom_sources." + key + ".fuelMillis", m.fuelMillis);
+                if (m.holoName != null) out.set("custom_sources." + key + ".holoName", m.holoName);
+                if (m.holoFuel != null) out.set("custom_sources." + key + ".holoFuel", m.holoFuel);
+            }
+
+            Path target = dataFile.toPath();
+            Path tmp = target.resolveSibling(dataFile.getName() + ".tmp");
+            try {
+                Files.write(tmp, out.saveToString().getBytes(StandardCharsets.UTF_8));
+                try {
+                    Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+                }
+                lastWrittenSeq = snap.seq;
+            } catch (IOException ex) {
+                plugin.getLogger().log(Level.WARNING, "Не удалось сохранить data.yml", ex);
+            }
         }
     }
 
+    private static final class Snapshot {
+        final long seq;
+        int stageId;
+        long stageEndMillis;
+        boolean autoStage;
+        boolean stageInfinite;
+        final List<PlayerRow> players = new ArrayList<>();
+        final List<SourceRow> sources = new ArrayList<>();
+
+        Snapshot(long seq) { this.seq = seq; }
+    }
+
+    private static final class PlayerRow {
+        String key;
+        int freezeStage;
+        long timeInHeat;
+        long timeWithoutHeat;
+        long damageAccumulatorMs;
+        boolean inHeat;
+        long timeBelowY;
+        long timeAboveY;
+        boolean undergroundMode;
+    }
+
+    private static final class SourceRow {
+        String key;
+        String type;
+        String world;
+        int x;
+        int y;
+        int z;
+        long fuelMillis;
+        String holoName; // UUID стоек табличек (armor_stand), может не быть
+        String holoFuel;
+    }
+
     public int getCurrentStageId() { return currentStageId; }
     public long getStageEndMillis() { return stageEndMillis; }
     public boolean getAutoStageFlag() { return autoStageFlag; }
     public boolean getStageInfiniteFlag() { return stageInfiniteFlag; }
-    public void setCurrentStage(int i) { this.currentStageId = i; }
-    public void setStageEndMillis(long ms) { this.stageEndMillis = ms; }
-    public void setAutoStageFlag(boolean flag) { this.autoStageFlag = flag; }
-    public void setStageInfiniteFlag(boolean flag) { this.stageInfiniteFlag = flag; }
+    public void setCurrentStage(int i) { this.currentStageId = i; dirty = true; }
+    public void setStageEndMillis(long ms) { this.stageEndMillis = ms; dirty = true; }
+    public void setAutoStageFlag(boolean flag) { this.autoStageFlag = flag; dirty = true; }
+    public void setStageInfiniteFlag(boolean flag) { this.stageInfiniteFlag = flag; dirty = true; }
 
     public PlayerFreezeData getPlayerData(UUID uuid) {
         return playerData.computeIfAbsent(uuid, PlayerFreezeData::new);
     }
     public void setPlayerData(UUID uuid, PlayerFreezeData data) {
         playerData.put(uuid, data);
+        dirty = true;
     }
     public Map<UUID, PlayerFreezeData> getAllPlayerData() { return playerData; }
 
@@ -210,16 +417,20 @@ public class DataManager {
         m.put("y", String.valueOf(c.getBlockY()));
         m.put("z", String.valueOf(c.getBlockZ()));
         m.put("fuelMillis", String.valueOf(s.getFuelMillis()));
+        if (s.getNameLineId() != null) m.put("holoName", s.getNameLineId().toString());
+        if (s.getFuelLineId() != null) m.put("holoFuel", s.getFuelLineId().toString());
         savedCustomSources.put(key, m);
+        dirty = true;
     }
 
     public void removeSavedCustomSource(Location loc) {
         String key = makeKey(loc);
-        savedCustomSources.remove(key);
+        if (savedCustomSources.remove(key) != null) dirty = true;
     }
 
     public void clearSavedCustomSources() {
         savedCustomSources.clear();
+        dirty = true;
     }
 
     private String makeKey(Location loc) {
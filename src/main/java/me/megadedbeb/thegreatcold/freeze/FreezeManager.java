@@ -272,7 +272,7 @@ public class FreezeManager {
             } else {
                 if (globalStageId >= 1 && fd.getTimeWithoutHeat() > 0L && fd.getFreezeStage() != FreezeStage.STAGE_4) {
                     var loc = player.getLocation().add(0.0, 1.0, 0.0);
-                    player.getWorld().spawnParticle(Particle.SNOWFLAKE, loc, 4, 0.25, 0.5, 0.25, 0.01);
+                    plugin.getParticleEmitter().emit(loc, Particle.SNOWFLAKE, 4, 0.25, 0.5, 0.25, 0.01);
                 }
             }
         } else {
@@ -291,7 +291,7 @@ public class FreezeManager {
                 } else {
                     if (fd.getTimeInHeat() > 0L) {
                         var loc = player.getLocation().add(0.0, 1.0, 0.0);
-                        player.getWorld().spawnParticle(Particle.DRIPPING_WATER, loc, 4, 0.2, 0.5, 0.2, 0.01);
+                        plugin.getParticleEmitter().emit(loc, Particle.DRIPPING_WATER, 4, 0.2, 0.5, 0.2, 0.01);
                     }
                 }
             }
@@ -556,7 +556,7 @@ public class FreezeManager {
         if (freezeTask != null) {
             Bukkit.getScheduler().cancelTask(freezeTask.getTaskId());
         }
-        dataManager.saveAll();
+        dataManager.markDirty();
     }
 
     public void applyEffects(Player player, FreezeStage stage, boolean announce) {
@@ -0,0 +1,136 @@
+package me.megadedbeb.thegreatcold.heat;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.NamespacedKey;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.entity.ArmorStand;
+import org.bukkit.entity.Entity;
+import org.bukkit.persistence.PersistentDataType;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * Прежний вариант: две невидимые стойки-маркера с видимым именем (строка названия и строка топлива).
+ *
+ * Стойки сохраняются вместе с чанком, а их UUID — вместе с обогревателем в data.yml. Потерянная ссылка
+ * восстанавливается через Bukkit.getEntity(uuid) или при загрузке сущностей чанка (onEntitiesLoad);
+ * там же удаляются стойки с нашей меткой, чей UUID обогревателю не принадлежит (дубликаты после падений).
+ */
+final class ArmorStandHolograms implements HologramBackend {
+    private static final double NAME_DY = 1.00;
+    private static final double FUEL_DY = 0.65;
+
+    private final NamespacedKey holoKey;
+
+    ArmorStandHolograms(NamespacedKey holoKey) {
+        this.holoKey = holoKey;
+    }
+
+    @Override
+    public boolean isAttached(CustomHeatSource s) {
+        Entity n = s.getNameLineEntity();
+        Entity f = s.getFuelLineEntity();
+        return n != null && n.isValid() && f != null && f.isValid();
+    }
+
+    @Override
+    public void show(CustomHeatSource s, Block block, String sourceKey, String name, String fuelLine) {
+        Entity n = s.getNameLineEntity();
+        if (n == null || !n.isValid()) {
+            s.setNameLineEntity(attach(block, block.getY() + NAME_DY, s.getNameLineId(), sourceKey + "|name", name));
+        } else if (!name.equals(s.getRenderedName())) {
+            // сущность стоит на месте (маркер без гравитации) — меняется только текст
+            try { n.setCustomName(name); } catch (Throwable ignored) {}
+        }
+
+        Entity f = s.getFuelLineEntity();
+        if (f == null || !f.isValid()) {
+            s.setFuelLineEntity(attach(block, block.getY() + FUEL_DY, s.getFuelLineId(), sourceKey + "|fuel", fuelLine));
+        } else if (!fuelLine.equals(s.getRenderedFuelLine())) {
+            try { f.setCustomName(fuelLine); } catch (Throwable ignored) {}
+        }
+
+        n = s.getNameLineEntity();
+        f = s.getFuelLineEntity();
+        s.setHologramIds(n != null ? n.getUniqueId() : s.getNameLineId(), f != null ? f.getUniqueId() : s.getFuelLineId());
+    }
+
+    /**
+     * Стойка строки по сохранённому UUID или новая. null — сущности чанка ещё не загружены:
+     * сохранённую стойку тогда подхватит onEntitiesLoad, новую ставить рано (получился бы дубликат).
+     */
+    private ArmorStand attach(Block block, double y, UUID id, String tag, String text) {
+        if (id != null) {
+            Entity e = Bukkit.getEntity(id);
+            if (e instanceof ArmorStand as && as.isValid()) {
+                try { as.setCustomName(text); } catch (Throwable ignored) {}
+                return as;
+            }
+            try {
+                if (!block.getChunk().isEntitiesLoaded()) return null;
+            } catch (Throwable ignored) {}
+        }
+
+        World w = block.getWorld();
+        Location loc = new Location(w, block.getX() + 0.5, y, block.getZ() + 0.5);
+        try {
+            return w.spawn(loc, ArmorStand.class, as -> {
+                as.setVisible(false);
+                as.setMarker(true);
+                as.setGravity(false);
+                as.setCustomNameVisible(true);
+                as.setCanPickupItems(false);
+                as.setCustomName(text);
+                as.setCollidable(false);
+                as.getPersistentDataContainer().set(holoKey, PersistentDataType.STRING, tag);
+            });
+        } catch (Throwable ignored) {}
+        return null;
+    }
+
+    @Override
+    public void remove(CustomHeatSource s) {
+        try {
+            Entity n = s.getNameLineEntity();
+            Entity f = s.getFuelLineEntity();
+            if (n != null && n.isValid()) n.remove();
+            if (f != null && f.isValid()) f.remove();
+        } catch (Throwable ignored) {}
+        s.setNameLineEntity(null);
+        s.setFuelLineEntity(null);
+        s.setHologramIds(null, null);
+    }
+
+    @Override
+    public void release(CustomHeatSource s) {
+        // стойки сохраняются с чанком, их UUID уходят в data.yml — после перезапуска они подхватываются
+        s.setNameLineEntity(null);
+        s.setFuelLineEntity(null);
+    }
+
+    @Override
+    public void onEntitiesLoad(List<Entity> entities, Function<String, CustomHeatSource> owner) {
+        for (Entity e : entities) {
+            if (!(e instanceof ArmorStand)) continue;
+            try {
+                String tag = e.getPersistentDataContainer().get(holoKey, PersistentDataType.STRING);
+                if (tag == null) continue;
+                int bar = tag.lastIndexOf('|');
+                CustomHeatSource s = bar > 0 ? owner.apply(tag.substring(0, bar)) : null;
+                String line = bar > 0 ? tag.substring(bar + 1) : "";
+                UUID id = e.getUniqueId();
+                if (s != null && "name".equals(line) && id.equals(s.getNameLineId())) {
+                    s.setNameLineEntity(e);
+                } else if (s != null && "fuel".equals(line) && id.equals(s.getFuelLineId())) {
+                    s.setFuelLineEntity(e);
+                } else {
+                    e.remove();
+                }
+            } catch (Throwable ignored) {}
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package me.megadedbeb.thegreatcold.heat;
+
+import me.megadedbeb.thegreatcold.util.BlockKeys;
+import me.megadedbeb.thegreatcold.util.LongObjectHashMap;
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.UUID;
+
+/**
+ * Единая очередь сканирования чанков вместо отдельной BukkitTask на каждый чанк.
+ *
+ * Одна задача раз в тик берёт чанки из очереди (ближайшие к игрокам — первыми) и выполняет
+ * их по шагам, пока не исчерпан бюджет времени на тик. Сколько бы чанков ни загрузилось разом,
+ * тик тратит на сканирование не больше бюджета (плюс один шаг — чтобы очередь всегда продвигалась).
+ */
+final class ChunkScanScheduler {
+
+    /** Выполняет один шаг сканирования; true — чанк полностью обработан. */
+    interface StepRunner {
+        boolean step(Job job);
+    }
+
+    static final class Job {
+        final World world;
+        final int cx;
+        final int cz;
+        final long chunkKey;
+        final boolean fullScan;
+        // состояние, которым распоряжается StepRunner
+        int phase;
+        int column;
+        // приоритет: квадрат расстояния в чанках до ближайшего игрока этого мира
+        long priority;
+        boolean cancelled;
+        // ждёт результата из фонового пула (в очереди уже нет, но чанк ещё «занят»)
+        boolean awaitingResult;
+
+        Job(World world, int cx, int cz, boolean fullScan) {
+            this.world = world;
+            this.cx = cx;
+            this.cz = cz;
+            this.chunkKey = BlockKeys.chunkKey(cx, cz);
+            this.fullScan = fullScan;
+        }
+    }
+
+    // пересчёт приоритетов (игроки двигаются), тики
+    private static final int REPRIORITIZE_INTERVAL_TICKS = 20;
+
+    private final Plugin plugin;
+    private final StepRunner runner;
+    private final long budgetNanos;
+
+    private PriorityQueue<Job> queue = new PriorityQueue<>(Comparator.comparingLong(j -> j.priority));
+    // worldUID -> chunkKey -> задача (в очереди или ожидающая результата)
+    private final Map<UUID, LongObjectHashMap<Job>> pending = new HashMap<>();
+    private int pendingCount;
+    private BukkitTask task;
+    private int ticks;
+
+    // статистика для /greatcold stats
+    private long lastTickNanos;
+    private int lastTickSteps;
+    private long completedJobs;
+
+    ChunkScanScheduler(Plugin plugin, long budgetNanos, StepRunner runner) {
+        this.plugin = plugin;
+        this.budgetNanos = Math.max(50_000L, budgetNanos);
+        this.runner = runner;
+    }
+
+    void start() {
+        if (task != null) return;
+        task = Bukkit.getScheduler().runTaskTimer(plugin, this::tick, 1L, 1L);
+    }
+
+    void stop() {
+        if (task != null) {
+            try { task.cancel(); } catch (Throwable ignored) {}
+            task = null;
+        }
+        clear();
+    }
+
+    /**
+     * Ставит чанк в очередь. Если чанк уже ждёт скана, повторно не добавляется
+     * (но быстрый скан может быть «повышен» до полного).
+     */
+    void enqueue(World world, int cx, int cz, boolean fullScan) {
+        LongObjectHashMap<Job> byWorld = pending.computeIfAbsent(world.getUID(), k -> new LongObjectHashMap<>());
+        long ck = BlockKeys.chunkKey(cx, cz);
+        Job existing = byWorld.get(ck);
+        if (existing != null) {
+            if (existing.fullScan || !fullScan || existing.awaitingResult) return;
+            // был поставлен только быстрый скан — заменяем полным
+            existing.cancelled = true;
+            byWorld.remove(ck);
+            pendingCount--;
+        }
+        Job job = new Job(world, cx, cz, fullScan);
+        job.priority = priorityOf(job, Bukkit.getOnlinePlayers());
+        byWorld.put(ck, job);
+        pendingCount++;
+        queue.add(job);
+    }
+
+    boolean isPending(World world, int cx, int cz) {
+        LongObjectHashMap<Job> byWorld = pending.get(world.getUID());
+        return byWorld != null && byWorld.containsKey(BlockKeys.chunkKey(cx, cz));
+    }
+
+    /** Отменяет скан чанка (выгрузка). Задача из кучи удаляется лениво. */
+    void cancel(World world, int cx, int cz) {
+        LongObjectHashMap<Job> byWorld = pending.get(world.getUID());
+        if (byWorld == null) return;
+        Job job = byWorld.remove(BlockKeys.chunkKey(cx, cz));
+        if (job != null) {
+            job.cancelled = true;
+            pendingCount--;
+        }
+    }
+
+    void cancelWorld(World world) {
+        LongObjectHashMap<Job> byWorld = pending.remove(world.getUID());
+        if (byWorld == null) return;
+        byWorld.forEachValue(j -> j.cancelled = true);
+        pendingCount -= byWorld.size();
+    }
+
+    /** Актуальна ли ещё задача (для результатов из фонового пула). */
+    boolean isCurrent(Job job) {
+        if (job.cancelled) return false;
+        LongObjectHashMap<Job> byWorld = pending.get(job.world.getUID());
+        return byWorld != null && byWorld.get(job.chunkKey) == job;
+    }
+
+    /** Завершает задачу, ожидавшую результата из фонового пула. */
+    void complete(Job job) {
+        if (!isCurrent(job)) return;
+        pending.get(job.world.getUID()).remove(job.chunkKey);
+        pendingCount--;
+        completedJobs++;
+    }
+
+    void clear() {
+        for (LongObjectHashMap<Job> byWorld : pending.values()) byWorld.forEachValue(j -> j.cancelled = true);
+        pending.clear();
+        queue.clear();
+        pendingCount = 0;
+    }
+
+    int getQueueDepth() { return pendingCount; }
+    long getLastTickNanos() { return lastTickNanos; }
+    int getLastTickSteps() { return lastTickSteps; }
+    long getCompletedJobs() { return completedJobs; }
+    long getBudgetNanos() { return budgetNanos; }
+
+    private void tick() {
+        if (++ticks % REPRIORITIZE_INTERVAL_TICKS == 0 && !queue.isEmpty()) reprioritize();
+        long start = System.nanoTime();
+        long deadline = start + budgetNanos;
+        int steps = 0;
+        Job job;
+        while ((job = queue.peek()) != null) {
+            if (job.cancelled) {
+                queue.poll();
+                continue;
+            }
+            if (steps > 0 && System.nanoTime() >= deadline) break;
+            steps++;
+            boolean done;
+            try {
+                done = runner.step(job);
+            } catch (Throwable t) {
+                done = true;
+            }
+            if (done || job.awaitingResult) {
+                queue.poll();
+                if (done) {
+                    LongObjectHashMap<Job> byWorld = pending.get(job.world.getUID());
+                    if (byWorld != null && byWorld.get(job.chunkKey) == job) {
+                        byWorld.remove(job.chunkKey);
+                        pendingCount--;
+                        completedJobs++;
+                    }
+                }
+            }
+        }
+        lastTickSteps = steps;
+        lastTickNanos = steps > 0 ? System.nanoTime() - start : 0L;
+    }
+
+    private void reprioritize() {
+        Iterable<? extends Player> players = Bukkit.getOnlinePlayers();
+        List<Job> live = new ArrayList<>(queue.size());
+        for (Job j : queue) {
+            if (j.cancelled) continue;
+            j.priority = priorityOf(j, players);
+            live.add(j);
+        }
+        PriorityQueue<Job> rebuilt = new PriorityQueue<>(Math.max(11, live.size()), queue.comparator());
+        rebuilt.addAll(live);
+        queue = rebuilt;
+    }
+
+    private static long priorityOf(Job job, Iterable<? extends Player> players) {
+        long best = Long.MAX_VALUE;
+        for (Player p : players) {
+            if (p.getWorld() != job.world) continue;
+            Location loc = p.getLocation();
+            long dx = (loc.getBlockX() >> 4) - job.cx;
+            long dz = (loc.getBlockZ() >> 4) - job.cz;
+            long d = dx * dx + dz * dz;
+            if (d < best) best = d;
+        }
+        return best;
+    }
+}
@@ -2,34 +2,37 @@ package me.megadedbeb.thegreatcold.heat;
 
 import me.megadedbeb.thegreatcold.TheGreatColdPlugin;
 import me.megadedbeb.thegreatcold.data.DataManager;
+import me.megadedbeb.thegreatcold.util.MaterialTable;
+import me.megadedbeb.thegreatcold.util.ParticleEmitter;
 import org.bukkit.*;
 import org.bukkit.block.Block;
-import org.bukkit.entity.ArmorStand;
 import org.bukkit.entity.Entity;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
 import org.bukkit.event.block.*;
 import org.bukkit.event.entity.EntityExplodeEvent;
+import org.bukkit.event.player.PlayerBucketEmptyEvent;
+import org.bukkit.event.player.PlayerBucketFillEvent;
 import org.bukkit.event.player.PlayerInteractEvent;
 import org.bukkit.event.world.ChunkLoadEvent;
 import org.bukkit.event.world.ChunkUnloadEvent;
+import org.bukkit.event.world.EntitiesLoadEvent;
 import org.bukkit.inventory.EquipmentSlot;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.persistence.PersistentDataType;
 import org.bukkit.scheduler.BukkitTask;
-import org.bukkit.ChatColor;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.ArrayDeque;
 
 /**
  * CustomHeatManager — управляет кастомными источниками тепла (small_heater, sea_heater, mega_furnace).
  *
  * Особенности:
  * - Сохранение/загрузка кастомных источников (fuelMillis + позиция).
- * - Голограммы (ArmorStand), частицы, таяние снега/льда.
+ * - Голограммы (HologramBackend: TextDisplay или ArmorStand), частицы, таяние снега/льда.
  * - Мегапечь: большой радиус, особое топливо, плавный поджог и визуалы.
  *
  * Сообщения игроку берутся из ConfigManager (messages.*).
@@ -42,16 +45,28 @@ public class CustomHeatManager implements Listener {
     // key = world:x:y:z  -> CustomHeatSource
     private final Map<String, CustomHeatSource> sources = new ConcurrentHashMap<>();
 
+    // сетка по x/z над зонами обогревателей для isLocationInCustomHeat (обновляется вместе с sources)
+    private final HeaterGrid grid = new HeaterGrid();
+
+    // горящие обогреватели и очередь моментов исчерпания топлива (устаревшие записи пропускаются)
+    private final Set<CustomHeatSource> burning = new LinkedHashSet<>();
+    private final PriorityQueue<FuelDeadline> fuelDeadlines = new PriorityQueue<>(Comparator.comparingLong(d -> d.at));
+
+    // инкрементальное таяние снега/льда (карты расчищенных колонок по обогревателям)
+    private final MeltEngine melt;
+
     private BukkitTask tickTask;
 
     private final NamespacedKey pdcKey;     // для рецепта/Item
-    private final NamespacedKey holoKey;    // для пометки ArmorStand'ов hologram
+    private final NamespacedKey holoKey;    // для пометки сущностей табличек
+    private final HologramBackend holograms;
+    private final ParticleEmitter particles;
+    // типы обогревателей (секции heaters и heater_fuel в config.yml)
+    private final HeaterRegistry heaterTypes;
 
-    // Throttling & intervals
-    private long lastSaveMillis = 0L;
-    private static final long SAVE_INTERVAL_MS = 60_000L;
-    private long tickCounter = 0L;
-    private static final int MELT_INTERVAL_TICKS = 5;
+    // обогреватели с activation: water_above, у которых надо перечитать воду сверху на следующем тике
+    private final Set<CustomHeatSource> waterRecheck = new LinkedHashSet<>();
+    private boolean waterRecheckScheduled;
 
     // random для постепенного поджигания
     private final Random random = new Random();
@@ -61,13 +76,72 @@ public class CustomHeatManager implements Listener {
         this.dataManager = dataManager;
         this.pdcKey = new NamespacedKey(plugin, "heater_type");
         this.holoKey = new NamespacedKey(plugin, "thegreatcold_hologram");
+        this.holograms = HologramBackend.create(plugin.getConfigManager().getHologramBackend(), holoKey);
+        this.particles = plugin.getParticleEmitter();
+        this.heaterTypes = HeaterRegistry.load(plugin.getConfigManager().getHeatersSection(),
+                plugin.getConfigManager().getHeaterFuelSection(), plugin.getLogger());
+        this.melt = new MeltEngine(plugin, grid, plugin.getConfigManager().getMeltBudgetNanos(),
+                plugin.getConfigManager().getMeltIntervalTicks(), this::onWaterMaybeChanged);
 
         Bukkit.getPluginManager().registerEvents(this, plugin);
 
-        // Load all saved entries into memory (preserve fuelMillis). Visuals spawn later when chunks load.
+        // Load all saved entries into memory (preserve fuelMillis). Visuals — на следующем тике (уже загруженные чанки) и при загрузке чанков.
         loadAllSavedIntoMemory();
+        // при сохранении живые обогреватели (с актуальным топливом) берутся прямо отсюда
+        dataManager.setCustomSourceProvider(sources::values);
 
         tickTask = Bukkit.getScheduler().runTaskTimer(plugin, this::tickAll, 20L, 20L);
+        melt.start();
+        // чанки, загруженные до включения плагина, EntitiesLoadEvent уже не получат — разово разбираем их сущности здесь
+        Bukkit.getScheduler().runTask(plugin, () -> {
+            for (World w : Bukkit.getWorlds()) {
+                try { holograms.onEntitiesLoad(w.getEntities(), sources::get); } catch (Throwable ignored) {}
+            }
+            // ChunkLoadEvent для этих чанков тоже не придёт: как в onChunkLoad — вода сверху и блок по
+            // текущему состоянию (мог погаснуть, пока сервер был выключен); затем таблички, которых не
+            // нашлось (или они удалены как чужие, или сняты в onDisable), — досоздать
+            for (CustomHeatSource s : new ArrayList<>(sources.values())) {
+                if (getSourceBlock(s) == null) continue;
+                try {
+                    readWaterAbove(s);
+                    updateVisualOnStateChange(s);
+                } catch (Throwable ignored) {}
+                if (holograms.isAttached(s)) continue;
+                try { spawnHologramsIfNeeded(s); } catch (Throwable ignored) {}
+            }
+        });
+    }
+
+    private void putSource(String key, CustomHeatSource s) {
+        CustomHeatSource prev = sources.put(key, s);
+        if (prev != null) {
+            grid.remove(prev);
+            burning.remove(prev);
+            melt.forget(prev);
+        }
+        grid.add(s);
+        readWaterAbove(s);
+        onFuelChanged(s);
+    }
+
+    /** Вызывать после любого изменения топлива: ставит (или снимает) срок исчерпания. */
+    private void onFuelChanged(CustomHeatSource s) {
+        if (s.isActive()) {
+            burning.add(s);
+            fuelDeadlines.add(new FuelDeadline(s, s.getFuelDeadlineMillis()));
+        } else {
+            burning.remove(s);
+        }
+    }
+
+    private static final class FuelDeadline {
+        final CustomHeatSource source;
+        final long at;
+
+        FuelDeadline(CustomHeatSource source, long at) {
+            this.source = source;
+            this.at = at;
+        }
     }
 
     private String keyFor(Location loc) {
@@ -85,7 +159,8 @@ public class CustomHeatManager implements Listener {
         var saved = dataManager.getSavedCustomSources();
         if (saved == null || saved.isEmpty()) return;
 
-        List<Map<String,String>> toRemove = new ArrayList<>();
+        // записи, поднятые в память (или негодные) — дальше они сохраняются из sources
+        List<Map<String,String>> consumed = new ArrayList<>();
 
         for (var dto : saved) {
             try {
@@ -97,41 +172,34 @@ public class CustomHeatManager implements Listener {
                 long fuel = Long.parseLong(dto.getOrDefault("fuelMillis", "0"));
 
                 World w = Bukkit.getWorld(world);
-                if (w == null) {
-                    toRemove.add(dto);
+                HeaterType t = heaterTypes.get(type);
+                if (w == null || t == null) {
+                    // мир не загружен или тип убран из config.yml — запись остаётся в DataManager как есть
                     continue;
                 }
 
                 Location loc = new Location(w, x, y, z);
                 String key = keyFor(loc);
+                consumed.add(dto);
                 if (sources.containsKey(key)) {
                     CustomHeatSource existing = sources.get(key);
-                    if (existing != null && existing.getFuelMillis() != fuel) existing.setFuelMillis(fuel);
+                    if (existing != null && existing.getFuelMillis() != fuel) {
+                        existing.setFuelMillis(fuel);
+                        onFuelChanged(existing);
+                    }
                     continue;
                 }
 
-                if (CustomHeatSource.TYPE_SMALL_HEATER.equals(type)) {
-                    long max = 15L * 60L * 60L * 1000L; // 15 hours
-                    CustomHeatSource s = new CustomHeatSource(type, loc, 15, max, fuel);
-                    sources.put(key, s);
-                } else if (CustomHeatSource.TYPE_SEA_HEATER.equals(type)) {
-                    long max = 8L * 60L * 60L * 1000L; // 8 hours
-                    CustomHeatSource s = new CustomHeatSource(type, loc, 41, max, fuel);
-                    sources.put(key, s);
-                } else if (CustomHeatSource.TYPE_MEGA_FURNACE.equals(type)) {
-                    long max = 45L * 60L * 60L * 1000L; // 45 hours
-                    CustomHeatSource s = new CustomHeatSource(type, loc, 121, max, fuel);
-                    sources.put(key, s);
-                } else {
-                    toRemove.add(dto);
-                }
+                CustomHeatSource s = new CustomHeatSource(t, loc, fuel);
+                s.setHologramIds(parseUuid(dto.get("holoName")), parseUuid(dto.get("holoFuel")));
+                putSource(key, s);
             } catch (Throwable t) {
-                try { toRemove.add(dto); } catch (Throwable ignored) {}
+                try { consumed.add(dto); } catch (Throwable ignored) {}
             }
         }
 
-        if (!toRemove.isEmpty()) {
-            for (var dto : toRemove) {
+        if (!consumed.isEmpty()) {
+            for (var dto : consumed) {
                 try {
                     String world = dto.get("world");
                     int x = Integer.parseInt(dto.get("x"));
@@ -143,7 +211,6 @@ public class CustomHeatManager implements Listener {
                     try { dataManager.removeSavedCustomSource(loc); } catch (Throwable ignored) {}
                 } catch (Throwable ignored) {}
             }
-            try { dataManager.saveAll(); } catch (Throwable ignored) {}
         }
     }
 
@@ -154,6 +221,14 @@ public class CustomHeatManager implements Listener {
         return Collections.unmodifiableCollection(sources.values());
     }
 
+    // статистика таяния для /greatcold stats
+    public long getMeltBacklogBlocks() { return melt.getBacklogBlocks(); }
+    public int getMeltQueuedHeaters() { return melt.getQueuedHeaters(); }
+    public int getMeltPlanning() { return melt.getPlanning(); }
+    public long getMeltLastTickNanos() { return melt.getLastTickNanos(); }
+    public long getMeltedBlocks() { return melt.getMeltedTotal(); }
+    public long getMeltBudgetNanos() { return melt.getBudgetNanos(); }
+
     // ----------------- Chunk events -----------------
 
     @EventHandler
@@ -163,31 +238,23 @@ public class CustomHeatManager implements Listener {
         int cx = chunk.getX();
         int cz = chunk.getZ();
 
-        // Process in-memory sources that are inside this chunk
-        List<CustomHeatSource> inChunk = new ArrayList<>();
-        for (CustomHeatSource s : sources.values()) {
-            Location loc = s.getBlockLocation();
-            if (!loc.getWorld().equals(w)) continue;
-            int scx = Math.floorDiv(loc.getBlockX(), 16);
-            int scz = Math.floorDiv(loc.getBlockZ(), 16);
-            if (scx == cx && scz == cz) inChunk.add(s);
-        }
+        // колонки этого чанка у соседних обогревателей надо проверить заново
+        melt.markChunk(w.getUID(), cx, cz);
+
+        // Process in-memory sources that are inside this chunk (копия: removeSourceAt меняет индекс)
+        List<CustomHeatSource> indexed = grid.inChunk(w.getUID(), cx, cz);
+        if (indexed == null) return;
+        List<CustomHeatSource> inChunk = new ArrayList<>(indexed);
 
         for (CustomHeatSource s : inChunk) {
             Location loc = s.getBlockLocation();
             Block b = w.getBlockAt(loc.getBlockX(), loc.getBlockY(), loc.getBlockZ());
-            boolean valid = false;
-            if (CustomHeatSource.TYPE_SMALL_HEATER.equals(s.getType())) {
-                if (b != null && (b.getType() == Material.COAL_BLOCK || b.getType() == Material.SHROOMLIGHT)) valid = true;
-            } else if (CustomHeatSource.TYPE_SEA_HEATER.equals(s.getType())) {
-                if (b != null && (b.getType() == Material.COAL_BLOCK || b.getType() == Material.SEA_LANTERN)) valid = true;
-            } else if (CustomHeatSource.TYPE_MEGA_FURNACE.equals(s.getType())) {
-                if (b != null && (b.getType() == Material.COAL_BLOCK || b.getType() == Material.MAGMA_BLOCK)) valid = true;
-            }
+            boolean valid = b != null && s.getHeaterType().isOwnBlock(b.getType());
 
             if (!valid) {
                 removeSourceAt(loc);
             } else {
+                readWaterAbove(s);
                 updateVisualOnStateChange(s);
                 spawnHologramsIfNeeded(s);
             }
@@ -201,15 +268,27 @@ public class CustomHeatManager implements Listener {
         int cx = chunk.getX();
         int cz = chunk.getZ();
 
-        for (CustomHeatSource s : sources.values()) {
-            Location loc = s.getBlockLocation();
-            if (!loc.getWorld().equals(w)) continue;
-            int scx = Math.floorDiv(loc.getBlockX(), 16);
-            int scz = Math.floorDiv(loc.getBlockZ(), 16);
-            if (scx == cx && scz == cz) {
-                s.setNameLineEntity(null);
-                s.setFuelLineEntity(null);
-            }
+        List<CustomHeatSource> inChunk = grid.inChunk(w.getUID(), cx, cz);
+        if (inChunk == null) return;
+        for (int i = 0, n = inChunk.size(); i < n; i++) {
+            CustomHeatSource s = inChunk.get(i);
+            s.setNameLineEntity(null);
+            s.setFuelLineEntity(null);
+        }
+    }
+
+    @EventHandler
+    public void onEntitiesLoad(EntitiesLoadEvent ev) {
+        holograms.onEntitiesLoad(ev.getEntities(), sources::get);
+
+        // таблички, которые при загрузке чанка ждали его сущностей (или не нашлись среди них), — досоздать
+        Chunk chunk = ev.getChunk();
+        List<CustomHeatSource> inChunk = grid.inChunk(chunk.getWorld().getUID(), chunk.getX(), chunk.getZ());
+        if (inChunk == null) return;
+        for (int i = 0, n = inChunk.size(); i < n; i++) {
+            CustomHeatSource s = inChunk.get(i);
+            if (holograms.isAttached(s)) continue;
+            try { spawnHologramsIfNeeded(s); } catch (Throwable ignored) {}
         }
     }
 
@@ -229,37 +308,37 @@ public class CustomHeatManager implements Listener {
         String key = keyFor(blockLoc);
         if (sources.containsKey(key)) return;
 
-        if (CustomHeatSource.TYPE_SMALL_HEATER.equals(type)) {
-            long max = 15L * 60L * 60L * 1000L;
-            CustomHeatSource s = new CustomHeatSource(type, blockLoc, 15, max, 0L);
-            sources.put(key, s);
-            purgeSavedCustomSourcesAt(blockLoc);
-            dataManager.addSavedCustomSource(s);
-            Block b = getSourceBlock(s);
-            if (b != null) b.setType(Material.COAL_BLOCK, false);
-            spawnHologramsIfNeeded(s);
-            dataManager.saveAll();
-        } else if (CustomHeatSource.TYPE_SEA_HEATER.equals(type)) {
-            long max = 8L * 60L * 60L * 1000L;
-            CustomHeatSource s = new CustomHeatSource(type, blockLoc, 41, max, 0L);
-            sources.put(key, s);
-            purgeSavedCustomSourcesAt(blockLoc);
-            dataManager.addSavedCustomSource(s);
-            Block b = getSourceBlock(s);
-            if (b != null) b.setType(Material.COAL_BLOCK, false);
-            spawnHologramsIfNeeded(s);
-            dataManager.saveAll();
-        } else if (CustomHeatSource.TYPE_MEGA_FURNACE.equals(type)) {
-            long max = 45L * 60L * 60L * 1000L; // 45 hours
-            CustomHeatSource s = new CustomHeatSource(type, blockLoc, 121, max, 0L);
-            sources.put(key, s);
-            purgeSavedCustomSourcesAt(blockLoc);
-            dataManager.addSavedCustomSource(s);
-            Block b = getSourceBlock(s);
-            if (b != null) b.setType(Material.MAGMA_BLOCK, false);
-            spawnHologramsIfNeeded(s);
-            dataManager.saveAll();
+        HeaterType t = heaterTypes.get(type);
+        if (t == null) return;
+
+        CustomHeatSource s = new CustomHeatSource(t, blockLoc, 0L);
+        putSource(key, s);
+        Block b = getSourceBlock(s);
+        if (b != null) {
+            b.setType(t.getPlaceBlock(), false);
+            s.setShownBlock(t.getPlaceBlock());
         }
+        // place_block — только момент установки; дальше блок по состоянию (без топлива — inactive_block)
+        updateVisuals(s);
+        spawnHologramsIfNeeded(s);
+        dataManager.markDirty();
+    }
+
+    public HeaterRegistry getHeaterTypes() {
+        return heaterTypes;
+    }
+
+    /** Предмет-обогреватель данного типа (для команды и рецепта). */
+    public ItemStack createHeaterItem(HeaterType t) {
+        ItemStack item = new ItemStack(t.getItem());
+        var meta = item.getItemMeta();
+        if (meta != null) {
+            meta.setDisplayName(t.getColor() + t.getName());
+            meta.setLore(t.getLore());
+            meta.getPersistentDataContainer().set(pdcKey, PersistentDataType.STRING, t.getId());
+            item.setItemMeta(meta);
+        }
+        return item;
     }
 
     public void removeSourceAt(Location blockLoc) {
@@ -267,141 +346,70 @@ public class CustomHeatManager implements Listener {
         String key = keyFor(blockLoc);
         CustomHeatSource s = sources.remove(key);
         if (s != null) {
+            grid.remove(s);
+            burning.remove(s);
+            melt.forget(s);
             despawnHolograms(s);
-            purgeSavedCustomSourcesAt(s.getBlockLocation());
-            try { dataManager.removeSavedCustomSource(s.getBlockLocation()); } catch (Throwable ignored) {}
             Block b = getSourceBlock(s);
             if (b != null) {
                 try { b.setType(Material.AIR, false); } catch (Throwable ignored) {}
             }
-            try { dataManager.saveAll(); } catch (Throwable ignored) {}
+            dataManager.markDirty();
         } else {
-            purgeSavedCustomSourcesAt(blockLoc);
             try { dataManager.removeSavedCustomSource(blockLoc); } catch (Throwable ignored) {}
-            try { dataManager.saveAll(); } catch (Throwable ignored) {}
         }
     }
 
-    private void purgeSavedCustomSourcesAt(Location blockLoc) {
-        try {
-            var saved = dataManager.getSavedCustomSources();
-            if (saved == null || saved.isEmpty()) return;
-            String worldName = blockLoc.getWorld().getName();
-            String sx = String.valueOf(blockLoc.getBlockX());
-            String sy = String.valueOf(blockLoc.getBlockY());
-            String sz = String.valueOf(blockLoc.getBlockZ());
-
-            List<Map<String,String>> toRemove = new ArrayList<>();
-            for (var dto : saved) {
-                try {
-                    String dw = dto.get("world");
-                    String dx = dto.get("x");
-                    String dy = dto.get("y");
-                    String dz = dto.get("z");
-                    if (worldName.equals(dw) && sx.equals(dx) && sy.equals(dy) && sz.equals(dz)) {
-                        toRemove.add(dto);
-                    }
-                } catch (Throwable ignored) {}
-            }
-
-            for (var dto : toRemove) {
-                try {
-                    String dw = dto.get("world");
-                    int dx = Integer.parseInt(dto.get("x"));
-                    int dy = Integer.parseInt(dto.get("y"));
-                    int dz = Integer.parseInt(dto.get("z"));
-                    World w = Bukkit.getWorld(dw);
-                    if (w == null) continue;
-                    Location loc = new Location(w, dx, dy, dz);
-                    try { dataManager.removeSavedCustomSource(loc); } catch (Throwable ignored) {}
-                } catch (Throwable ignored) {}
-            }
-        } catch (Throwable ignored) {}
-    }
-
     // ----------------- tick / particles / melt -----------------
 
     /**
-     * Важно: теперь морской обогреватель тратит топливо независимо от загрузки чанка (как и небольшой).
-     * Визуалы и таяние по-прежнему выполняются только для загруженных чанков / если условия выполнены.
+     * Топливо тратится по времени независимо от загрузки чанка (момент исчерпания хранится в источнике),
+     * поэтому обходятся только горящие обогреватели в загруженных чанках: частицы, таяние, голограммы.
+     * Погасшие и выгруженные обогреватели ничего не стоят, пока не наступит их срок в очереди.
      */
     private void tickAll() {
-        tickCounter++;
-        long dt = 1000L;
-        boolean anyChanged = false;
-
-        for (CustomHeatSource s : sources.values()) {
-            long beforeFuel = s.getFuelMillis();
-            boolean stateChanged = false;
-
-            // Always attempt to consume fuel if any (for both types).
-            // s.tick will reduce fuelMillis and return whether active/inactive changed.
-            try {
-                stateChanged = s.tick(dt);
-            } catch (Throwable ignored) {}
+        expireFuel(System.currentTimeMillis());
 
-            long afterFuel = s.getFuelMillis();
+        for (CustomHeatSource s : burning) {
+            World w = Bukkit.getWorld(s.getWorldId());
+            if (w == null || !w.isChunkLoaded(s.getBlockX() >> 4, s.getBlockZ() >> 4)) continue;
 
-            // Spawn particles for active sources (for sea_heater require water above AND fuel)
-            if (CustomHeatSource.TYPE_SEA_HEATER.equals(s.getType())) {
-                Block block = getSourceBlock(s);
-                boolean effectiveActive = false;
-                if (block != null && s.isActive()) {
-                    Block above = block.getRelative(0,1,0);
-                    effectiveActive = (above != null && above.getType() == Material.WATER);
-                }
-                if (effectiveActive) spawnSeaParticles(s);
-            } else if (CustomHeatSource.TYPE_MEGA_FURNACE.equals(s.getType())) {
-                if (s.isActive()) spawnMegaParticles(s);
-            } else {
-                if (s.isActive()) spawnParticles(s);
+            // частицы — только пока греет (с учётом воды сверху) и если рядом есть кому показывать
+            if (s.isEffectivelyActive() && particles.hasViewers(w, s.getBlockX() + 0.5, s.getBlockY() + 1.0, s.getBlockZ() + 0.5)) {
+                spawnParticles(s, w);
             }
 
             // melt snow/ice occasionally (only for sources that are effectively active)
-            boolean effectiveActiveForMelt;
-            if (CustomHeatSource.TYPE_SEA_HEATER.equals(s.getType())) {
-                Block block = getSourceBlock(s);
-                if (block == null) effectiveActiveForMelt = false;
-                else {
-                    Block above = block.getRelative(0,1,0);
-                    effectiveActiveForMelt = (s.isActive() && above != null && above.getType() == Material.WATER);
-                }
-            } else {
-                effectiveActiveForMelt = s.isActive();
-            }
-            if (effectiveActiveForMelt && (tickCounter % MELT_INTERVAL_TICKS == 0)) {
-                try { meltSnowAndIceInLoadedChunks(s); } catch (Throwable t) { plugin.getLogger().warning("Ошибка melt: " + t); }
-            }
+            boolean effectiveActiveForMelt = s.isEffectivelyActive();
+            // сам проход таяния запустит общий планировщик MeltEngine, когда подойдёт очередь
+            if (effectiveActiveForMelt) melt.request(s, w);
 
-            // Update holograms if needed
-            if (stateChanged || s.getNameLineEntity() != null || s.getFuelLineEntity() != null) {
+            // Update holograms if needed (полоса топлива меняется, пока он горит)
+            if (holograms.isAttached(s)) {
                 try { spawnOrUpdateHolograms(s); } catch (Throwable ignored) {}
             }
 
-            // Persist in-memory DTO whenever fuel changed
-            if (stateChanged || afterFuel != beforeFuel) {
-                try {
-                    purgeSavedCustomSourcesAt(s.getBlockLocation());
-                    dataManager.addSavedCustomSource(s); // update in-memory map
-                } catch (Throwable ignored) {}
-                anyChanged = true;
-            }
-
-            // Also ensure visuals reflect effective active state (sea heater might have fuel but no water -> inactive visual)
-            try { updateVisuals(s); } catch (Throwable ignored) {}
+            // блок обогревателя здесь не трогаем: его меняют только переходы состояния
+            // (срок топлива в expireFuel, дозаправка, вода над обогревателем, загрузка чанка)
 
-            // Special behaviour for megafurnace: ignition within small radius (gradual)
-            if (CustomHeatSource.TYPE_MEGA_FURNACE.equals(s.getType()) && s.isActive()) {
-                try { applyMegaIgnition(s); } catch (Throwable ignored) {}
+            // поджог вокруг (мегапечь): постепенно, в малом радиусе
+            if (s.getHeaterType().getIgniteRadius() > 0 && s.isActive()) {
+                try { applyIgnition(s); } catch (Throwable ignored) {}
             }
         }
+    }
 
-        long now = System.currentTimeMillis();
-        if (anyChanged || (now - lastSaveMillis >= SAVE_INTERVAL_MS)) {
-            try {
-                dataManager.saveAll();
-                lastSaveMillis = now;
-            } catch (Throwable t) { plugin.getLogger().warning("Ошибка saveAll: " + t); }
+    // Обогреватели, у которых наступил срок: гаснут один раз (блок, голограммы, сохранение)
+    private void expireFuel(long now) {
+        FuelDeadline d;
+        while ((d = fuelDeadlines.peek()) != null && d.at <= now) {
+            fuelDeadlines.poll();
+            CustomHeatSource s = d.source;
+            // срок устарел (дозаправка) или обогреватель уже удалён
+            if (d.at != s.getFuelDeadlineMillis() || !burning.remove(s)) continue;
+            try { updateVisuals(s); } catch (Throwable ignored) {}
+            try { spawnOrUpdateHolograms(s); } catch (Throwable ignored) {}
+            dataManager.markDirty();
         }
     }
 
@@ -416,23 +424,12 @@ public class CustomHeatManager implements Listener {
         return w.getBlockAt(blockLoc.getBlockX(), blockLoc.getBlockY(), blockLoc.getBlockZ());
     }
 
+    // чанк загрузился: что стоит в мире, то и считаем показанным, дальше — обычный переход
     private void updateVisualOnStateChange(CustomHeatSource s) {
         Block b = getSourceBlock(s);
         if (b == null) return;
-        try {
-            if (CustomHeatSource.TYPE_SEA_HEATER.equals(s.getType())) {
-                Block above = b.getRelative(0,1,0);
-                boolean activeEffective = (s.isActive() && above != null && above.getType() == Material.WATER);
-                if (activeEffective) b.setType(Material.SEA_LANTERN, false);
-                else b.setType(Material.COAL_BLOCK, false);
-            } else if (CustomHeatSource.TYPE_MEGA_FURNACE.equals(s.getType())) {
-                if (s.isActive()) b.setType(Material.MAGMA_BLOCK, false);
-                else b.setType(Material.COAL_BLOCK, false);
-            } else {
-                if (s.isActive()) b.setType(Material.SHROOMLIGHT, false);
-                else b.setType(Material.COAL_BLOCK, false);
-            }
-        } catch (Throwable ignored) {}
+        s.setShownBlock(b.getType());
+        updateVisuals(s);
     }
 
     // ---------------- holograms / particles / melt ----------------
@@ -447,273 +444,37 @@ public class CustomHeatManager implements Listener {
         Block block = getSourceBlock(s);
         if (block == null) return;
 
-        if (s.getNameLineEntity() != null && !s.getNameLineEntity().isValid()) s.setNameLineEntity(null);
-        if (s.getFuelLineEntity() != null && !s.getFuelLineEntity().isValid()) s.setFuelLineEntity(null);
-
-        double nameY = block.getY() + 1.00;
-        double fuelY = block.getY() + 0.65;
-        World w = block.getWorld();
-        String sourceKey = keyFor(block.getLocation());
-
-        String displayName;
-        if (CustomHeatSource.TYPE_SEA_HEATER.equals(s.getType())) {
-            Block above = block.getRelative(0,1,0);
-            boolean effectiveActive = (s.isActive() && above != null && above.getType() == Material.WATER);
-            displayName = (effectiveActive ? (ChatColor.BLUE.toString() + "Морской обогреватель") : (ChatColor.AQUA.toString() + "Морской обогреватель"));
-        } else if (CustomHeatSource.TYPE_MEGA_FURNACE.equals(s.getType())) {
-            displayName = (s.isActive() ? (ChatColor.RED.toString() + "Мегапечь") : (ChatColor.AQUA.toString() + "Мегапечь"));
-        } else {
-            displayName = (s.isActive() ? (ChatColor.GOLD.toString() + "Небольшой обогреватель") : (ChatColor.AQUA.toString() + "Небольшой обогреватель"));
-        }
+        boolean effectiveActive = s.isEffectivelyActive();
+        int bar = s.getFuelBarState();
 
-        ArmorStand nameAS = s.getNameLineEntity();
-        if (nameAS == null || !nameAS.isValid()) {
-            Collection<Entity> nearby = w.getNearbyEntities(new Location(w, block.getX() + 0.5, nameY, block.getZ() + 0.5), 0.6, 0.6, 0.6);
-            ArmorStand found = null;
-            List<ArmorStand> extras = new ArrayList<>();
-            for (Entity e : nearby) {
-                if (!(e instanceof ArmorStand as)) continue;
-                if (!as.getPersistentDataContainer().has(holoKey, PersistentDataType.STRING)) continue;
-                String v = as.getPersistentDataContainer().get(holoKey, PersistentDataType.STRING);
-                if ((sourceKey + "|name").equals(v)) {
-                    if (found == null) found = as;
-                    else extras.add(as);
-                }
-            }
-            for (ArmorStand ex : extras) try { ex.remove(); } catch (Throwable ignored) {}
-            if (found != null) {
-                nameAS = found;
-                s.setNameLineEntity(nameAS);
-            } else {
-                Location nameLoc = new Location(w, block.getX() + 0.5, nameY, block.getZ() + 0.5);
-                Entity e = w.spawn(nameLoc, ArmorStand.class, as -> {
-                    as.setVisible(false);
-                    as.setMarker(true);
-                    as.setGravity(false);
-                    as.setCustomNameVisible(true);
-                    as.setCanPickupItems(false);
-                    as.setCustomName(displayName);
-                    as.setCollidable(false);
-                    as.getPersistentDataContainer().set(holoKey, PersistentDataType.STRING, sourceKey + "|name");
-                });
-                if (e instanceof ArmorStand as2) {
-                    nameAS = as2;
-                    s.setNameLineEntity(nameAS);
-                }
-            }
-        } else {
-            try {
-                nameAS.setCustomName(displayName);
-                nameAS.teleport(new Location(w, block.getX() + 0.5, nameY, block.getZ() + 0.5));
-            } catch (Throwable ignored) {}
-        }
+        // табличка на месте и отрисована для того же цвета и той же полосы — сущности не трогаем
+        if (holograms.isAttached(s) && s.isHologramRendered(effectiveActive, bar)) return;
 
-        ArmorStand fuelAS = s.getFuelLineEntity();
-        if (fuelAS == null || !fuelAS.isValid()) {
-            Collection<Entity> nearby = w.getNearbyEntities(new Location(w, block.getX() + 0.5, fuelY, block.getZ() + 0.5), 0.6, 0.6, 0.6);
-            ArmorStand found = null;
-            List<ArmorStand> extras = new ArrayList<>();
-            for (Entity e : nearby) {
-                if (!(e instanceof ArmorStand as)) continue;
-                if (!as.getPersistentDataContainer().has(holoKey, PersistentDataType.STRING)) continue;
-                String v = as.getPersistentDataContainer().get(holoKey, PersistentDataType.STRING);
-                if ((sourceKey + "|fuel").equals(v)) {
-                    if (found == null) found = as;
-                    else extras.add(as);
-                }
-            }
-            for (ArmorStand ex : extras) try { ex.remove(); } catch (Throwable ignored) {}
-            if (found != null) {
-                fuelAS = found;
-                s.setFuelLineEntity(fuelAS);
-            } else {
-                Location fuelLoc = new Location(w, block.getX() + 0.5, fuelY, block.getZ() + 0.5);
-                Entity e2 = w.spawn(fuelLoc, ArmorStand.class, as -> {
-                    as.setVisible(false);
-                    as.setMarker(true);
-                    as.setGravity(false);
-                    as.setCustomNameVisible(true);
-                    as.setCanPickupItems(false);
-                    as.setCustomName(s.getDisplayFuelLine());
-                    as.setCollidable(false);
-                    as.getPersistentDataContainer().set(holoKey, PersistentDataType.STRING, sourceKey + "|fuel");
-                });
-                if (e2 instanceof ArmorStand as2) {
-                    fuelAS = as2;
-                    s.setFuelLineEntity(fuelAS);
-                }
-            }
-        } else {
-            try {
-                fuelAS.setCustomName(s.getDisplayFuelLine());
-                fuelAS.teleport(new Location(w, block.getX() + 0.5, fuelY, block.getZ() + 0.5));
-            } catch (Throwable ignored) {}
-        }
+        String displayName = s.getDisplayName();
+        String fuelLine = s.getDisplayFuelLine();
 
-        try {
-            if (nameAS != null) nameAS.getPersistentDataContainer().set(holoKey, PersistentDataType.STRING, sourceKey + "|name");
-            if (fuelAS != null) fuelAS.getPersistentDataContainer().set(holoKey, PersistentDataType.STRING, sourceKey + "|fuel");
-        } catch (Throwable ignored) {}
+        UUID nameId = s.getNameLineId();
+        UUID fuelId = s.getFuelLineId();
+        holograms.show(s, block, keyFor(block.getLocation()), displayName, fuelLine);
+        s.setHologramRendered(effectiveActive, bar, displayName, fuelLine);
+        // новые сущности табличек — их UUID должны попасть в data.yml
+        if (!Objects.equals(nameId, s.getNameLineId()) || !Objects.equals(fuelId, s.getFuelLineId())) dataManager.markDirty();
     }
 
     private void despawnHolograms(CustomHeatSource s) {
-        try {
-            ArmorStand n = s.getNameLineEntity();
-            ArmorStand f = s.getFuelLineEntity();
-            if (n != null && n.isValid()) n.remove();
-            if (f != null && f.isValid()) f.remove();
-        } catch (Throwable ignored) {}
-        s.setNameLineEntity(null);
-        s.setFuelLineEntity(null);
-    }
-
-    private void spawnParticles(CustomHeatSource s) {
-        try {
-            Block b = getSourceBlock(s);
-            if (b == null) return;
-            Location c = new Location(b.getWorld(), b.getX() + 0.5, b.getY() + 0.9, b.getZ() + 0.5);
-            b.getWorld().spawnParticle(Particle.FLAME, c, 6, 0.3, 0.2, 0.3, 0.01);
-        } catch (Throwable ignored) {}
+        holograms.remove(s);
+        s.resetHologramRendered();
     }
 
-    private void spawnSeaParticles(CustomHeatSource s) {
-        try {
-            Block b = getSourceBlock(s);
-            if (b == null) return;
-            World w = b.getWorld();
-            Location center = new Location(w, b.getX() + 0.5, b.getY() + 0.9, b.getZ() + 0.5);
-            w.spawnParticle(Particle.BUBBLE_POP, center, 12, 1.2, 0.6, 1.2, 0.02);
-            Location top = new Location(w, b.getX() + 0.5, b.getY() + 1.6, b.getZ() + 0.5);
-            w.spawnParticle(Particle.POOF, top, 4, 0.2, 0.2, 0.2, 0.01);
-        } catch (Throwable ignored) {}
+    private static UUID parseUuid(String v) {
+        if (v == null || v.isEmpty()) return null;
+        try { return UUID.fromString(v); } catch (IllegalArgumentException e) { return null; }
     }
 
-    private void spawnMegaParticles(CustomHeatSource s) {
-        try {
-            Block b = getSourceBlock(s);
-            if (b == null) return;
-            World w = b.getWorld();
-            Location center = new Location(w, b.getX() + 0.5, b.getY() + 0.9, b.getZ() + 0.5);
-            w.spawnParticle(Particle.DRIPPING_LAVA, center, 16, 1.5, 1.0, 1.5, 0.05);
-            Location top = new Location(w, b.getX() + 0.5, b.getY() + 1.6, b.getZ() + 0.5);
-            w.spawnParticle(Particle.FLAME, top, 6, 0.5, 0.5, 0.5, 0.02);
-        } catch (Throwable ignored) {}
-    }
-
-    /**
-     * Центрированный BFS melt с адаптивными лимитами.
-     * Использует s.getRadius() (для sea_heater значение задаётся при создании).
-     */
-    private void meltSnowAndIceInLoadedChunks(CustomHeatSource s) {
-        Block src = getSourceBlock(s);
-        if (src == null) return;
-        World w = src.getWorld();
-        int cx = src.getX();
-        int cy = src.getY();
-        int cz = src.getZ();
-        int r = s.getRadius();
-
-        final int MAX_SEARCH_NODES_SEA = 200_000;
-        final int MAX_SEARCH_NODES_SMALL = 16_384;
-        final int MAX_MELTS_SEA = 256;
-        final int MAX_MELTS_SMALL = 64;
-
-        // For mega furnace use larger caps but still bounded
-        final int MAX_SEARCH_NODES_MEGA = 500_000;
-        final int MAX_MELTS_MEGA = 1024;
-
-        final int MAX_SEARCH_NODES = CustomHeatSource.TYPE_SEA_HEATER.equals(s.getType()) ? MAX_SEARCH_NODES_SEA
-                : (CustomHeatSource.TYPE_MEGA_FURNACE.equals(s.getType()) ? MAX_SEARCH_NODES_MEGA : MAX_SEARCH_NODES_SMALL);
-        final int localMaxMelt = CustomHeatSource.TYPE_SEA_HEATER.equals(s.getType()) ? MAX_MELTS_SEA
-                : (CustomHeatSource.TYPE_MEGA_FURNACE.equals(s.getType()) ? MAX_MELTS_MEGA : MAX_MELTS_SMALL);
-
-        int melted = 0;
-
-        ArrayDeque<int[]> q = new ArrayDeque<>();
-        HashSet<Long> visited = new HashSet<>();
-
-        final int OFFSET = 1 << 20;
-        q.add(new int[]{cx, cy, cz});
-        visited.add((((long)(cx + OFFSET)) << 42) | (((long)(cy + OFFSET)) << 21) | ((long)(cz + OFFSET)));
-
-        while (!q.isEmpty() && melted < localMaxMelt && visited.size() < MAX_SEARCH_NODES) {
-            int[] pos = q.poll();
-            int x = pos[0], y = pos[1], z = pos[2];
-
-            if (Math.abs(x - cx) > r || Math.abs(y - cy) > r || Math.abs(z - cz) > r) continue;
-
-            int chunkX = Math.floorDiv(x, 16);
-            int chunkZ = Math.floorDiv(z, 16);
-            if (!w.isChunkLoaded(chunkX, chunkZ)) continue;
-
-            try {
-                Block b = w.getBlockAt(x, y, z);
-                Material mt = b.getType();
-                if (mt == Material.SNOW || mt == Material.SNOW_BLOCK) {
-                    b.setType(Material.AIR, false);
-                    melted++;
-                } else if (mt == Material.ICE) {
-                    b.setType(Material.WATER, false);
-                    melted++;
-                }
-            } catch (Throwable ignored) {}
-
-            if (melted >= localMaxMelt) break;
-
-            int[][] neigh = {{1,0,0},{-1,0,0},{0,1,0},{0,-1,0},{0,0,1},{0,0,-1}};
-            for (int[] d : neigh) {
-                int nx = x + d[0], ny = y + d[1], nz = z + d[2];
-                if (Math.abs(nx - cx) > r || Math.abs(ny - cy) > r || Math.abs(nz - cz) > r) continue;
-                long key = (((long)(nx + OFFSET)) << 42) | (((long)(ny + OFFSET)) << 21) | ((long)(nz + OFFSET));
-                if (visited.contains(key)) continue;
-                visited.add(key);
-                q.add(new int[]{nx, ny, nz});
-            }
-        }
-
-        if (melted < localMaxMelt && visited.size() >= MAX_SEARCH_NODES) {
-            int minX = cx - r;
-            int maxX = cx + r;
-            int minZ = cz - r;
-            int maxZ = cz + r;
-
-            int minChunkX = Math.floorDiv(minX, 16);
-            int maxChunkX = Math.floorDiv(maxX, 16);
-            int minChunkZ = Math.floorDiv(minZ, 16);
-            int maxChunkZ = Math.floorDiv(maxZ, 16);
-
-            outer:
-            for (int ccx = minChunkX; ccx <= maxChunkX; ccx++) {
-                for (int ccz = minChunkZ; ccz <= maxChunkZ; ccz++) {
-                    if (!w.isChunkLoaded(ccx, ccz)) continue;
-                    int startX = Math.max(minX, ccx * 16);
-                    int endX = Math.min(maxX, ccx * 16 + 15);
-                    int startZ = Math.max(minZ, ccz * 16);
-                    int endZ = Math.min(maxZ, ccz * 16 + 15);
-                    for (int x = startX; x <= endX; x++) {
-                        for (int z = startZ; z <= endZ; z++) {
-                            int topY = w.getHighestBlockYAt(x, z);
-                            int fromY = Math.max(w.getMinHeight(), topY - 64);
-                            for (int y = topY; y >= fromY; y--) {
-                                if (Math.abs(x - cx) > r || Math.abs(y - cy) > r || Math.abs(z - cz) > r) continue;
-                                try {
-                                    Block b = w.getBlockAt(x, y, z);
-                                    Material mt = b.getType();
-                                    if (mt == Material.SNOW || mt == Material.SNOW_BLOCK) {
-                                        b.setType(Material.AIR, false);
-                                        melted++;
-                                        if (melted >= localMaxMelt) break outer;
-                                    } else if (mt == Material.ICE) {
-                                        b.setType(Material.WATER, false);
-                                        melted++;
-                                        if (melted >= localMaxMelt) break outer;
-                                    }
-                                } catch (Throwable ignored) {}
-                            }
-                        }
-                    }
-                }
-            }
+    private void spawnParticles(CustomHeatSource s, World w) {
+        double x = s.getBlockX() + 0.5, z = s.getBlockZ() + 0.5;
+        for (HeaterType.ParticleSpec p : s.getHeaterType().getParticles()) {
+            particles.emit(w, p.particle(), x, s.getBlockY() + p.dy(), z, p.count(), p.ox(), p.oy(), p.oz(), p.extra());
         }
     }
 
@@ -730,11 +491,114 @@ public class CustomHeatManager implements Listener {
         if (val == null) return;
         Location loc = ev.getBlockPlaced().getLocation();
         Bukkit.getScheduler().runTaskLater(plugin, () -> {
-            try { ev.getBlockPlaced().setType(Material.COAL_BLOCK, false); } catch (Throwable ignored) {}
             createSourceAt(loc, val);
         }, 0L);
     }
 
+    // снегопад / замерзание воды / снежный голем — колонка снова требует таяния
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockForm(BlockFormEvent ev) {
+        Material m = ev.getNewState().getType();
+        if (m != Material.SNOW && m != Material.SNOW_BLOCK && m != Material.ICE) return;
+        Block b = ev.getBlock();
+        melt.markColumn(b.getWorld().getUID(), b.getX(), b.getZ());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onMeltTargetPlace(BlockPlaceEvent ev) {
+        Material m = ev.getBlockPlaced().getType();
+        if (m != Material.SNOW && m != Material.SNOW_BLOCK && m != Material.ICE) return;
+        Block b = ev.getBlockPlaced();
+        melt.markColumn(b.getWorld().getUID(), b.getX(), b.getZ());
+    }
+
+    // ---------------- вода над обогревателями (activation: water_above) ----------------
+
+    /**
+     * Блок b мог изменить воду над обогревателем, которому она нужна (b — сам обогреватель или блок над ним).
+     * События приходят до изменения, поэтому блок перечитывается на следующем тике.
+     */
+    private void onWaterMaybeChanged(Block b) {
+        List<CustomHeatSource> inChunk = grid.inChunk(b.getWorld().getUID(), b.getX() >> 4, b.getZ() >> 4);
+        if (inChunk == null) return;
+        int x = b.getX(), y = b.getY(), z = b.getZ();
+        for (int i = 0, n = inChunk.size(); i < n; i++) {
+            CustomHeatSource s = inChunk.get(i);
+            if (s.getBlockX() != x || s.getBlockZ() != z) continue;
+            if (y != s.getBlockY() + 1 && y != s.getBlockY()) continue;
+            if (s.getHeaterType().getActivation() != HeaterType.Activation.WATER_ABOVE) continue;
+            waterRecheck.add(s);
+        }
+        if (!waterRecheck.isEmpty() && !waterRecheckScheduled) {
+            waterRecheckScheduled = true;
+            Bukkit.getScheduler().runTask(plugin, this::recheckWater);
+        }
+    }
+
+    private void recheckWater() {
+        waterRecheckScheduled = false;
+        List<CustomHeatSource> due = new ArrayList<>(waterRecheck);
+        waterRecheck.clear();
+        for (CustomHeatSource s : due) {
+            if (sources.get(keyFor(s.getBlockLocation())) != s) continue; // удалён
+            if (readWaterAbove(s)) {
+                try { updateVisuals(s); } catch (Throwable ignored) {}
+            }
+        }
+    }
+
+    /** Перечитывает воду над обогревателем с activation: water_above (если чанк загружен). @return true если значение изменилось. */
+    private boolean readWaterAbove(CustomHeatSource s) {
+        if (s.getHeaterType().getActivation() != HeaterType.Activation.WATER_ABOVE) return false;
+        World w = Bukkit.getWorld(s.getWorldId());
+        if (w == null || !w.isChunkLoaded(s.getBlockX() >> 4, s.getBlockZ() >> 4)) return false;
+        boolean water = w.getType(s.getBlockX(), s.getBlockY() + 1, s.getBlockZ()) == Material.WATER;
+        if (water == s.isWaterAbove()) return false;
+        s.setWaterAbove(water);
+        return true;
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onWaterFlow(BlockFromToEvent ev) {
+        onWaterMaybeChanged(ev.getToBlock());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onWaterPhysics(BlockPhysicsEvent ev) {
+        onWaterMaybeChanged(ev.getBlock());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onWaterPlace(BlockPlaceEvent ev) {
+        onWaterMaybeChanged(ev.getBlockPlaced());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onWaterBreak(BlockBreakEvent ev) {
+        onWaterMaybeChanged(ev.getBlock());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onWaterBucketEmpty(PlayerBucketEmptyEvent ev) {
+        onWaterMaybeChanged(ev.getBlock());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onWaterBucketFill(PlayerBucketFillEvent ev) {
+        onWaterMaybeChanged(ev.getBlock());
+    }
+
+    // вода над обогревателем замёрзла / лёд над ним растаял
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onWaterForm(BlockFormEvent ev) {
+        onWaterMaybeChanged(ev.getBlock());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onWaterFade(BlockFadeEvent ev) {
+        onWaterMaybeChanged(ev.getBlock());
+    }
+
     @EventHandler
     public void onBlockBreak(BlockBreakEvent ev) {
         Block b = ev.getBlock();
@@ -789,8 +653,8 @@ public class CustomHeatManager implements Listener {
             return;
         }
 
-        // For mega furnace: restrict interactions to allowed fuel items only
-        if (CustomHeatSource.TYPE_MEGA_FURNACE.equals(s.getType())) {
+        // fuel_only (мегапечь): с блоком можно взаимодействовать только топливом
+        if (s.getHeaterType().isFuelOnly()) {
             // if no item in hand — disallow interaction (but do not send the removed message per request)
             if (inHand == null || inHand.getType() == Material.AIR) {
                 ev.setCancelled(true);
@@ -873,7 +737,11 @@ public class CustomHeatManager implements Listener {
             }
         }
 
+        onFuelChanged(s);
         updateVisuals(s);
+        // процент топлива вырос — полоса обновится, даже если блок уже горел
+        spawnOrUpdateHolograms(s);
+        dataManager.markDirty();
         p.getWorld().playSound(p.getLocation(), Sound.ITEM_FIRECHARGE_USE, 1.0f, 1.0f);
         String fuelAddedMsg = TheGreatColdPlugin.getInstance().getConfigManager().getMessage("heat_source.fuel_added", s.getFuelPercent());
         p.sendMessage(fuelAddedMsg);
@@ -904,105 +772,52 @@ public class CustomHeatManager implements Listener {
     }
 
     private Integer minutesForFuel(Material mat, ItemStack stack, CustomHeatSource s) {
-        String name = mat.name();
-
-        // Mega furnace fuel rules (user-specified)
-        if (CustomHeatSource.TYPE_MEGA_FURNACE.equals(s.getType())) {
-            if (mat == Material.COAL || mat == Material.CHARCOAL) return 3;
-            if (mat == Material.COAL_BLOCK) return 27; // changed per request: 27 minutes
-            if (name.endsWith("_LOG") || name.endsWith("_WOOD") || (name.startsWith("STRIPPED_") && (name.contains("_LOG") || name.contains("_WOOD")))) return 3;
-            if (name.endsWith("_PLANKS")) return 1;
-            for (String w : new String[]{"OAK","SPRUCE","BIRCH","JUNGLE","ACACIA","DARK_OAK","MANGROVE","CHERRY"}) {
-                if (name.equals(w + "_SLAB")) return 1;
-            }
-            if (mat == Material.STICK) return 0; // allowed but 0 minutes
-            if (mat == Material.LAVA_BUCKET) return 30;
-            if (mat == Material.MAGMA_BLOCK) return 6;
-            // Fallback: treat other items same as small heater mapping (as before)
-        }
-
-        // For sea heater
-        if (CustomHeatSource.TYPE_SEA_HEATER.equals(s.getType())) {
-            if (mat == Material.MAGMA_BLOCK) return 10;
-            if (mat == Material.COAL_BLOCK) return 40;
-            if (mat == Material.COAL || mat == Material.CHARCOAL) return 4;
-            if (name.endsWith("_LOG") || name.endsWith("_WOOD") || (name.startsWith("STRIPPED_") && (name.contains("_LOG") || name.contains("_WOOD")))) return 4;
-            if (mat == Material.CRAFTING_TABLE) return 4;
-            if (name.endsWith("_DOOR") && mat != Material.IRON_DOOR && mat != Material.COPPER_DOOR) return 3;
-            if (name.endsWith("_SIGN")) return 1;
-            if (name.endsWith("_PLANKS")) return 1;
-            for (String w : new String[]{"OAK","SPRUCE","BIRCH","JUNGLE","ACACIA","DARK_OAK","MANGROVE","CHERRY"}) {
-                if (name.equals(w + "_SLAB")) return 1;
-            }
-            if (mat == Material.STICK) return 1;
-            return null;
-        }
-
-        // Default (small heater) logic
-        Integer base = null;
-        if (mat == Material.COAL_BLOCK) base = 81;
-        else if (mat == Material.COAL || mat == Material.CHARCOAL) base = 9;
-        else if (name.endsWith("_LOG") || name.endsWith("_WOOD") || (name.startsWith("STRIPPED_") && (name.contains("_LOG") || name.contains("_WOOD")))) base = 9;
-        else if (mat == Material.CRAFTING_TABLE) base = 8;
-        else if (name.endsWith("_DOOR") && mat != Material.IRON_DOOR && mat != Material.COPPER_DOOR) base = 6;
-        else if (name.endsWith("_SIGN")) base = 4;
-        else if (name.endsWith("_PLANKS")) base = 2;
-        else {
-            for (String w : new String[]{"OAK","SPRUCE","BIRCH","JUNGLE","ACACIA","DARK_OAK","MANGROVE","CHERRY"}) {
-                if (name.equals(w + "_SLAB")) { base = 1; break; }
-            }
-            if (mat == Material.STICK) base = 1;
-        }
-
-        if (base == null) return null;
-        int reduced = (int) Math.floor(base * 0.75);
-        reduced = Math.max(1, reduced);
-        return reduced;
+        // таблицы топлива собраны из config.yml при запуске — здесь только чтение по ordinal
+        int minutes = s.getHeaterType().getFuel().minutes(mat);
+        return minutes < 0 ? null : minutes;
     }
 
     public boolean isLocationInCustomHeat(Location loc) {
         if (loc == null || loc.getWorld() == null) return false;
-        for (CustomHeatSource s : sources.values()) {
-            if (!s.isActive()) continue;
-            Block cBlock = getSourceBlock(s);
-            if (cBlock == null) continue;
-            Location c = cBlock.getLocation();
-            if (!c.getWorld().equals(loc.getWorld())) continue;
-
-            if (CustomHeatSource.TYPE_SEA_HEATER.equals(s.getType())) {
-                Block above = cBlock.getRelative(0,1,0);
-                if (above == null || above.getType() != Material.WATER) continue;
-            }
-
-            int dx = Math.abs(loc.getBlockX() - c.getBlockX());
-            int dy = Math.abs(loc.getBlockY() - c.getBlockY());
-            int dz = Math.abs(loc.getBlockZ() - c.getBlockZ());
-            if (dx <= s.getRadius() && dy <= s.getRadius() && dz <= s.getRadius()) return true;
+        World w = loc.getWorld();
+        int x = loc.getBlockX(), y = loc.getBlockY(), z = loc.getBlockZ();
+        // только обогреватели, чьи кубы задевают ячейку сетки с этой точкой
+        List<CustomHeatSource> candidates = grid.candidates(w.getUID(), x, z);
+        if (candidates == null) return false;
+        for (int i = 0, n = candidates.size(); i < n; i++) {
+            CustomHeatSource s = candidates.get(i);
+            // у activation: water_above — ещё и вода сверху (флаг из событий блоков, без чтения мира)
+            if (!s.isEffectivelyActive()) continue;
+            int r = s.getRadius();
+            if (Math.abs(x - s.getBlockX()) > r || Math.abs(y - s.getBlockY()) > r || Math.abs(z - s.getBlockZ()) > r) continue;
+            // как и раньше, греет только обогреватель в загруженном чанке
+            if (!w.isChunkLoaded(s.getBlockX() >> 4, s.getBlockZ() >> 4)) continue;
+            return true;
         }
         return false;
     }
 
-    private void updateVisuals(CustomHeatSource s) {
+    // Блок обогревателя в текущем состоянии: греет — active_block, иначе (нет топлива / воды) — inactive_block
+    private static Material visualBlock(CustomHeatSource s) {
+        HeaterType t = s.getHeaterType();
+        return s.isEffectivelyActive() ? t.getActiveBlock() : t.getInactiveBlock();
+    }
+
+    /**
+     * Переход визуального состояния: блок ставится и голограммы обновляются, только если нужный блок
+     * отличается от показанного. @return true если переход был.
+     */
+    private boolean updateVisuals(CustomHeatSource s) {
+        Material target = visualBlock(s);
+        if (target == s.getShownBlock()) return false;
         Block b = getSourceBlock(s);
-        if (b != null) {
-            try {
-                if (CustomHeatSource.TYPE_SEA_HEATER.equals(s.getType())) {
-                    Block above = b.getRelative(0,1,0);
-                    boolean activeEffective = (s.isActive() && above != null && above.getType() == Material.WATER);
-                    if (activeEffective) b.setType(Material.SEA_LANTERN, false);
-                    else b.setType(Material.COAL_BLOCK, false);
-                } else if (CustomHeatSource.TYPE_MEGA_FURNACE.equals(s.getType())) {
-                    if (s.isActive()) b.setType(Material.MAGMA_BLOCK, false);
-                    else b.setType(Material.COAL_BLOCK, false);
-                } else {
-                    if (s.isActive()) b.setType(Material.SHROOMLIGHT, false);
-                    else b.setType(Material.COAL_BLOCK, false);
-                }
-            } catch (Throwable ignored) {}
-        }
+        if (b == null) return false;
+        try {
+            if (b.getType() != target) b.setType(target, false);
+        } catch (Throwable ignored) {}
+        s.setShownBlock(target);
         spawnOrUpdateHolograms(s);
-        try { purgeSavedCustomSourcesAt(s.getBlockLocation()); } catch (Throwable ignored) {}
-        dataManager.addSavedCustomSource(s);
+        return true;
     }
 
     public void onDisable() {
@@ -1010,21 +825,17 @@ public class CustomHeatManager implements Listener {
             try { Bukkit.getScheduler().cancelTask(tickTask.getTaskId()); } catch (Throwable ignored) {}
             tickTask = null;
         }
+        melt.stop();
 
-        try {
-            for (CustomHeatSource s : sources.values()) {
-                try { purgeSavedCustomSourcesAt(s.getBlockLocation()); } catch (Throwable ignored) {}
-            }
-            for (CustomHeatSource s : sources.values()) {
-                try { dataManager.addSavedCustomSource(s); } catch (Throwable ignored) {}
-            }
-            dataManager.saveAll();
-        } catch (Throwable t) {
-            plugin.getLogger().warning("Ошибка при сохранении данных CustomHeatManager в onDisable: " + t);
-        }
+        // сами данные сохраняет DataManager.shutdown() (синхронно, из sources)
+        dataManager.markDirty();
 
+        // UUID сохраняемых табличек не обнуляем: DataManager.shutdown() пишет их в data.yml после нас
         for (CustomHeatSource s : sources.values()) {
-            try { despawnHolograms(s); } catch (Throwable ignored) {}
+            try {
+                holograms.release(s);
+                s.resetHologramRendered();
+            } catch (Throwable ignored) {}
         }
     }
 
@@ -1037,11 +848,11 @@ public class CustomHeatManager implements Listener {
      * - Не заменяем существующие блоки на огонь (ставим FIRE только если над подходящим блоком сейчас AIR).
      * - Ограниченное число случайных попыток поджига в тик (чтобы было плавно).
      */
-    private void applyMegaIgnition(CustomHeatSource s) {
+    private void applyIgnition(CustomHeatSource s) {
         Block b = getSourceBlock(s);
         if (b == null) return;
         World w = b.getWorld();
-        int r = 3;
+        int r = s.getHeaterType().getIgniteRadius();
         int cx = b.getX(), cy = b.getY(), cz = b.getZ();
 
         // entities: give a chance to ignite per-tick
@@ -1073,12 +884,7 @@ public class CustomHeatManager implements Listener {
                 Material baseMat = base.getType();
                 if (baseMat == Material.AIR || baseMat == Material.WATER || baseMat == Material.LAVA) continue;
 
-                String nm = baseMat.name();
-                boolean flammable = nm.endsWith("_LOG") || nm.endsWith("_WOOD") || nm.endsWith("_PLANKS")
-                        || nm.endsWith("_LEAVES") || nm.endsWith("_WOOL") || nm.equals("HAY_BLOCK")
-                        || nm.endsWith("_CARPET") || nm.equals("TNT");
-
-                if (!flammable) continue;
+                if (!MaterialTable.isFlammable(baseMat)) continue;
 
                 try { above.setType(Material.FIRE, false); } catch (Throwable ignored) {}
             } catch (Throwable ignored) {}
@@ -1,103 +1,144 @@
 package me.megadedbeb.thegreatcold.heat;
 
 import org.bukkit.Location;
-import org.bukkit.entity.ArmorStand;
+import org.bukkit.Material;
+import org.bukkit.entity.Entity;
 import org.bukkit.ChatColor;
 
+import java.util.UUID;
+
 /**
  * Модель кастомного источника тепла.
  *
  * Теперь хранит явную координату блока (blockLocation) — это гарантирует, что
  * все операции (замена блока, сохранение, удаление, отображение) выполняются
  * строго для одной и той же координаты.
+ *
+ * Топливо хранится не остатком, а моментом, когда оно кончится (fuelDeadlineMillis):
+ * остаток и активность вычисляются при чтении, поэтому горящий обогреватель не требует
+ * работы каждую секунду. Момент исчерпания отслеживает очередь сроков в CustomHeatManager.
  */
 public class CustomHeatSource {
-    public static final String TYPE_SMALL_HEATER = "small_heater";
-    public static final String TYPE_SEA_HEATER = "sea_heater";
-    public static final String TYPE_MEGA_FURNACE = "mega_furnace"; // новая мегапечь
-
-    private final String type;
+    // описание типа (радиус, ёмкость, блоки, частицы...) — из HeaterRegistry
+    private final HeaterType type;
 
     // точная локация блока источника (целые координаты)
     private final Location blockLocation;
 
+    // те же координаты примитивами — для горячих проверок без клонирования Location
+    private final UUID worldId;
+    private final int blockX;
+    private final int blockY;
+    private final int blockZ;
+
     // координата центра/для визуализации (blockLocation + offset 0.5, 1.2, 0.5)
     private final Location center;
 
-    private final int radius; // куб радиус (от центра ±radius по осям)
-    private final long maxFuelMillis;
-
-    private long fuelMillis; // текущее количество топлива в миллисекундах
+    // System.currentTimeMillis(), когда топливо кончится; <= now — топлива нет
+    private long fuelDeadlineMillis;
 
     // runtime
-    private ArmorStand nameLine; // верхняя строка (title)
-    private ArmorStand fuelLine; // нижняя строка (bar)
+    private Entity nameLine; // верхняя строка (title) или вся табличка TextDisplay
+    private Entity fuelLine; // нижняя строка (bar), у TextDisplay — null
+    // UUID сохраняемых сущностей табличек (стойки для брони) — пишутся в data.yml вместе с обогревателем
+    private UUID nameLineId;
+    private UUID fuelLineId;
+
+    // блок, который плагин последним поставил (или застал) на месте обогревателя; null — неизвестно
+    private Material shownBlock;
 
-    public CustomHeatSource(String type, Location blockLoc, int radius, long maxFuelMillis, long initialFuelMillis) {
+    // только для типов с условием WATER_ABOVE: вода прямо над блоком (кеш, поддерживается событиями блоков в CustomHeatManager)
+    private boolean waterAbove;
+
+    // последнее отрисованное состояние голограмм: пока цвет и полоса (getFuelBarState) те же, сущности не трогаются
+    private boolean renderedActive;
+    private int renderedBar = -1;
+    private String renderedName;
+    private String renderedFuelLine;
+
+    public CustomHeatSource(HeaterType type, Location blockLoc, long initialFuelMillis) {
         this.type = type;
         // normalize block location to integers (block coords)
         this.blockLocation = blockLoc.clone();
         this.blockLocation.setX(blockLoc.getBlockX());
         this.blockLocation.setY(blockLoc.getBlockY());
         this.blockLocation.setZ(blockLoc.getBlockZ());
+        this.worldId = blockLoc.getWorld().getUID();
+        this.blockX = blockLoc.getBlockX();
+        this.blockY = blockLoc.getBlockY();
+        this.blockZ = blockLoc.getBlockZ();
 
         // center for particles / hologram base (slightly above the block center)
         this.center = this.blockLocation.clone().add(0.5, 1.2, 0.5);
 
-        this.radius = radius;
-        this.maxFuelMillis = maxFuelMillis;
-        this.fuelMillis = Math.max(0L, Math.min(maxFuelMillis, initialFuelMillis));
+        setFuelMillis(initialFuelMillis);
     }
 
-    public String getType() { return type; }
+    /** Ключ типа (как в data.yml). */
+    public String getType() { return type.getId(); }
+
+    public HeaterType getHeaterType() { return type; }
 
     /** Точная локация блока (целые координаты) */
     public Location getBlockLocation() { return blockLocation.clone(); }
 
+    public UUID getWorldId() { return worldId; }
+    public int getBlockX() { return blockX; }
+    public int getBlockY() { return blockY; }
+    public int getBlockZ() { return blockZ; }
+
     /** Центр (для частиц / позиционирования nameplates) */
     public Location getCenter() { return center.clone(); }
 
-    public int getRadius() { return radius; }
-    public long getMaxFuelMillis() { return maxFuelMillis; }
-    public long getFuelMillis() { return fuelMillis; }
-    public void setFuelMillis(long ms) { fuelMillis = Math.max(0L, Math.min(maxFuelMillis, ms)); }
-
-    public boolean isActive() { return fuelMillis > 0L; }
+    /** Радиус куба (от блока ±radius по осям). */
+    public int getRadius() { return type.getRadius(); }
+    public long getMaxFuelMillis() { return type.getMaxFuelMillis(); }
+    /** Остаток топлива на текущий момент (мс). */
+    public long getFuelMillis() {
+        return Math.max(0L, fuelDeadlineMillis - System.currentTimeMillis());
+    }
 
-    public void addFuelMillis(long ms) {
-        if (ms <= 0) return;
-        fuelMillis = Math.min(maxFuelMillis, fuelMillis + ms);
+    public void setFuelMillis(long ms) {
+        long clamped = Math.max(0L, Math.min(type.getMaxFuelMillis(), ms));
+        fuelDeadlineMillis = clamped > 0L ? System.currentTimeMillis() + clamped : 0L;
     }
 
-    public void consumeMillis(long ms) {
-        if (ms <= 0) return;
-        fuelMillis = Math.max(0L, fuelMillis - ms);
+    /** Момент исчерпания топлива (System.currentTimeMillis()), 0 — топлива нет. */
+    public long getFuelDeadlineMillis() { return fuelDeadlineMillis; }
+
+    public boolean isActive() { return fuelDeadlineMillis > System.currentTimeMillis(); }
+
+    /** Греет ли сейчас: есть топливо, а типу с условием WATER_ABOVE ещё нужна вода сверху. */
+    public boolean isEffectivelyActive() {
+        return isActive() && (waterAbove || type.getActivation() != HeaterType.Activation.WATER_ABOVE);
     }
 
-    /**
-     * Уменьшение топлива за период (ms). Возвращает true если состояние (active/inactive) изменилось.
-     * Используется внешне; для sea_heater вызов tick только если над блоком есть вода (см. CustomHeatManager).
-     */
-    public boolean tick(long ms) {
-        boolean before = isActive();
-        consumeMillis(ms);
-        boolean after = isActive();
-        return before != after;
+    public Material getShownBlock() { return shownBlock; }
+    public void setShownBlock(Material shownBlock) { this.shownBlock = shownBlock; }
+
+    public boolean isWaterAbove() { return waterAbove; }
+    public void setWaterAbove(boolean waterAbove) { this.waterAbove = waterAbove; }
+
+    public void addFuelMillis(long ms) {
+        if (ms <= 0) return;
+        setFuelMillis(getFuelMillis() + ms);
     }
 
     /**
      * Возвращает percent [0..100]
      */
     public int getFuelPercent() {
-        if (maxFuelMillis <= 0) return 0;
-        return (int) ((fuelMillis * 100L) / maxFuelMillis);
+        long max = type.getMaxFuelMillis();
+        if (max <= 0) return 0;
+        return (int) ((getFuelMillis() * 100L) / max);
     }
 
     /**
-     * Возвращает отображаемую строку топлива: 10 слотов, '■' (full), '▬' (half/5%), '□' empty.
+     * Состояние полосы топлива: полных слотов * 2 + (1, если есть половинка), 0..20.
      * Округление: remainder == 5 -> one half; remainder > 5 -> round up to next full.
+     * Пока оно не меняется, текст полосы тот же.
      */
-    public String renderFuelBar() {
+    public int getFuelBarState() {
         int pct = getFuelPercent();
         int full = pct / 10;
         int rem = pct % 10;
@@ -106,41 +147,31 @@ public class CustomHeatSource {
         else if (rem > 5) {
             full += 1;
         }
+        if (full >= 10) return 20;
+        return full * 2 + (half ? 1 : 0);
+    }
+
+    /**
+     * Возвращает отображаемую строку топлива: 10 слотов, '■' (full), '▬' (half/5%), '□' empty.
+     */
+    public String renderFuelBar() {
+        int state = getFuelBarState();
+        int full = state >> 1;
+        boolean half = (state & 1) != 0;
         StringBuilder sb = new StringBuilder();
-        for (int i = 0; i < full && i < 10; i++) sb.append('■');
-        if (half && full < 10) sb.append('▬');
+        for (int i = 0; i < full; i++) sb.append('■');
+        if (half) sb.append('▬');
         while (sb.length() < 10) sb.append('□');
         return sb.toString();
     }
 
     /**
-     * Текст верхней строки (название) — зависит от типа и активности.
-     *
-     * Учтите: для sea_heater фактическая "эффективная" активность (вода над блоком) не проверяется в этом методе,
-     * поэтому CustomHeatManager при установке голограммы использует свою логику для корректного цвета имени.
+     * Текст верхней строки (название): цвет типа, пока обогреватель греет (с учётом воды сверху
+     * для WATER_ABOVE), иначе голубой.
      */
     public String getDisplayName() {
-        String title;
-        if (TYPE_SMALL_HEATER.equals(type)) {
-            title = "Небольшой обогреватель";
-        } else if (TYPE_SEA_HEATER.equals(type)) {
-            title = "Морской обогреватель";
-        } else if (TYPE_MEGA_FURNACE.equals(type)) {
-            title = "Мегапечь";
-        } else {
-            title = "Источник тепла";
-        }
-        // fallback color (не используется для sea_heater в тех местах, где нужна проверка воды)
-        String color;
-        if (isActive()) {
-            if (TYPE_SMALL_HEATER.equals(type)) color = ChatColor.GOLD.toString();
-            else if (TYPE_SEA_HEATER.equals(type)) color = ChatColor.BLUE.toString();
-            else if (TYPE_MEGA_FURNACE.equals(type)) color = ChatColor.RED.toString();
-            else color = ChatColor.GOLD.toString();
-        } else {
-            color = ChatColor.AQUA.toString();
-        }
-        return color + title;
+        String color = isEffectivelyActive() ? type.getColor() : ChatColor.AQUA.toString();
+        return color + type.getName();
     }
 
     /**
@@ -166,9 +197,36 @@ public class CustomHeatSource {
         return sb.toString();
     }
 
-    // ArmorStand setter/getter (runtime entity references)
-    public ArmorStand getNameLineEntity() { return nameLine; }
-    public ArmorStand getFuelLineEntity() { return fuelLine; }
-    public void setNameLineEntity(ArmorStand as) { this.nameLine = as; }
-    public void setFuelLineEntity(ArmorStand as) { this.fuelLine = as; }
+    // hologram entity setter/getter (runtime entity references)
+    public Entity getNameLineEntity() { return nameLine; }
+    public Entity getFuelLineEntity() { return fuelLine; }
+    public void setNameLineEntity(Entity e) { this.nameLine = e; }
+    public void setFuelLineEntity(Entity e) { this.fuelLine = e; }
+
+    public UUID getNameLineId() { return nameLineId; }
+    public UUID getFuelLineId() { return fuelLineId; }
+    public void setHologramIds(UUID nameId, UUID fuelId) {
+        this.nameLineId = nameId;
+        this.fuelLineId = fuelId;
+    }
+
+    public boolean isHologramRendered(boolean effectiveActive, int barState) {
+        return renderedBar == barState && renderedActive == effectiveActive;
+    }
+
+    public void setHologramRendered(boolean effectiveActive, int barState, String name, String fuelLine) {
+        this.renderedActive = effectiveActive;
+        this.renderedBar = barState;
+        this.renderedName = name;
+        this.renderedFuelLine = fuelLine;
+    }
+
+    public void resetHologramRendered() {
+        this.renderedBar = -1;
+        this.renderedName = null;
+        this.renderedFuelLine = null;
+    }
+
+    public String getRenderedName() { return renderedName; }
+    public String getRenderedFuelLine() { return renderedFuelLine; }
 }
\ No newline at end of file
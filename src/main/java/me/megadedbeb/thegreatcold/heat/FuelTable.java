@@ -0,0 +1,111 @@
+package me.megadedbeb.thegreatcold.heat;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Material;
+import org.bukkit.NamespacedKey;
+import org.bukkit.Tag;
+import org.bukkit.configuration.ConfigurationSection;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Таблица топлива одного типа обогревателя: Material.ordinal() -> минуты за один предмет, -1 — не топливо.
+ *
+ * Собирается один раз из секции heater_fuel в config.yml. Ключи — имена материалов (COAL)
+ * или теги с решёткой ('#logs_that_burn', '#minecraft:planks'); явно указанный материал
+ * важнее тега, среди тегов действует последний по порядку. inherit: другой_тип — сначала
+ * копируется его таблица, сверху накладываются свои items.
+ */
+final class FuelTable {
+    private final int[] minutes;
+
+    private FuelTable(int[] minutes) {
+        this.minutes = minutes;
+    }
+
+    /** Таблица без топлива (тип без секции в heater_fuel). */
+    static FuelTable empty() {
+        int[] table = new int[Material.values().length];
+        Arrays.fill(table, -1);
+        return new FuelTable(table);
+    }
+
+    /** Минуты горения одного предмета, -1 — не топливо. */
+    int minutes(Material m) {
+        return m == null ? -1 : minutes[m.ordinal()];
+    }
+
+    /** Компилирует все типы из секции heater_fuel (тип -> {inherit, items}). */
+    static Map<String, FuelTable> compileAll(ConfigurationSection root, Logger log) {
+        Map<String, FuelTable> out = new HashMap<>();
+        if (root == null) return out;
+        for (String type : root.getKeys(false)) compile(root, type, out, log, 0);
+        return out;
+    }
+
+    private static FuelTable compile(ConfigurationSection root, String type, Map<String, FuelTable> done, Logger log, int depth) {
+        FuelTable ready = done.get(type);
+        if (ready != null) return ready;
+        ConfigurationSection sec = root.getConfigurationSection(type);
+        int[] table = new int[Material.values().length];
+        Arrays.fill(table, -1);
+        if (sec == null) {
+            if (log != null) log.warning("heater_fuel: нет секции для " + type);
+            return new FuelTable(table);
+        }
+
+        String parent = sec.getString("inherit");
+        if (parent != null && !parent.equals(type)) {
+            if (depth > 8 || !root.isConfigurationSection(parent)) {
+                if (log != null) log.warning("heater_fuel." + type + ": не удалось унаследовать " + parent);
+            } else {
+                System.arraycopy(compile(root, parent, done, log, depth + 1).minutes, 0, table, 0, table.length);
+            }
+        }
+
+        ConfigurationSection items = sec.getConfigurationSection("items");
+        if (items != null) {
+            // сначала теги, затем явные материалы — они перекрывают теги
+            for (String key : items.getKeys(false)) {
+                if (!key.startsWith("#")) continue;
+                Tag<Material> tag = resolveTag(key.substring(1));
+                if (tag == null) {
+                    if (log != null) log.warning("heater_fuel." + type + ": неизвестный тег " + key);
+                    continue;
+                }
+                int v = items.getInt(key, -1);
+                for (Material m : tag.getValues()) table[m.ordinal()] = v;
+            }
+            for (String key : items.getKeys(false)) {
+                if (key.startsWith("#")) continue;
+                Material m = Material.matchMaterial(key);
+                if (m == null) {
+                    if (log != null) log.warning("heater_fuel." + type + ": неизвестный материал " + key);
+                    continue;
+                }
+                table[m.ordinal()] = items.getInt(key, -1);
+            }
+        }
+
+        FuelTable t = new FuelTable(table);
+        done.put(type, t);
+        return t;
+    }
+
+    private static Tag<Material> resolveTag(String name) {
+        name = name.toLowerCase(Locale.ROOT);
+        NamespacedKey key = name.indexOf(':') >= 0 ? NamespacedKey.fromString(name) : NamespacedKey.minecraft(name);
+        if (key == null) return null;
+        try {
+            Tag<Material> t = Bukkit.getTag(Tag.REGISTRY_ITEMS, key, Material.class);
+            if (t != null) return t;
+            return Bukkit.getTag(Tag.REGISTRY_BLOCKS, key, Material.class);
+        } catch (Throwable ignored) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package me.megadedbeb.thegreatcold.heat;
+
+import me.megadedbeb.thegreatcold.util.BlockKeys;
+import me.megadedbeb.thegreatcold.util.LongObjectHashMap;
+import org.bukkit.Material;
+import org.bukkit.block.Block;
+import org.bukkit.block.BlockState;
+import org.bukkit.block.Furnace;
+import org.bukkit.block.data.BlockData;
+import org.bukkit.block.data.Lightable;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Кеш «горит / не горит» для печей, коптилен и плавильных печей.
+ *
+ * Заполняется событиями (FurnaceBurnEvent, FurnaceStartSmeltEvent, смена block-data Lit у печи),
+ * а при промахе — холодным путём: сначала block-data Lit (сервер держит его равным «время горения > 0»),
+ * и только если его нет — снимок tile-entity с getBurnTime.
+ *
+ * worldUID -> chunkKey -> packed block pos -> Boolean; записи чанка сбрасываются при его выгрузке.
+ */
+final class FurnaceLitTracker {
+    private final Map<UUID, LongObjectHashMap<LongObjectHashMap<Boolean>>> worlds = new HashMap<>();
+
+    static boolean isFurnace(Material m) {
+        return m == Material.FURNACE || m == Material.SMOKER || m == Material.BLAST_FURNACE;
+    }
+
+    /** Горит ли печь: из кеша, иначе холодным путём (с записью в кеш). */
+    boolean isLit(Block block) {
+        LongObjectHashMap<Boolean> chunk = chunkFor(block, false);
+        long pos = BlockKeys.blockKey(block.getX(), block.getY(), block.getZ());
+        if (chunk != null) {
+            Boolean cached = chunk.get(pos);
+            if (cached != null) return cached;
+        }
+        boolean lit = readLit(block);
+        put(block, lit);
+        return lit;
+    }
+
+    /** @return true если значение в кеше изменилось (или его не было). */
+    boolean put(Block block, boolean lit) {
+        LongObjectHashMap<Boolean> chunk = chunkFor(block, true);
+        Boolean prev = chunk.put(BlockKeys.blockKey(block.getX(), block.getY(), block.getZ()), lit ? Boolean.TRUE : Boolean.FALSE);
+        return prev == null || prev != lit;
+    }
+
+    /** Есть ли печь на этой позиции в кеше (без обращения к миру). */
+    boolean isTracked(UUID world, int x, int y, int z) {
+        LongObjectHashMap<LongObjectHashMap<Boolean>> byChunk = worlds.get(world);
+        if (byChunk == null) return false;
+        LongObjectHashMap<Boolean> chunk = byChunk.get(BlockKeys.chunkKeyOfBlock(x, z));
+        return chunk != null && chunk.containsKey(BlockKeys.blockKey(x, y, z));
+    }
+
+    void forget(Block block) {
+        LongObjectHashMap<Boolean> chunk = chunkFor(block, false);
+        if (chunk == null) return;
+        chunk.remove(BlockKeys.blockKey(block.getX(), block.getY(), block.getZ()));
+        if (chunk.isEmpty()) {
+            LongObjectHashMap<LongObjectHashMap<Boolean>> byChunk = worlds.get(block.getWorld().getUID());
+            if (byChunk != null) byChunk.remove(BlockKeys.chunkKeyOfBlock(block.getX(), block.getZ()));
+        }
+    }
+
+    void forgetChunk(UUID world, int cx, int cz) {
+        LongObjectHashMap<LongObjectHashMap<Boolean>> byChunk = worlds.get(world);
+        if (byChunk != null) byChunk.remove(BlockKeys.chunkKey(cx, cz));
+    }
+
+    void forgetWorld(UUID world) {
+        worlds.remove(world);
+    }
+
+    void clear() {
+        worlds.clear();
+    }
+
+    /** Холодный путь: block-data Lit, затем (если его нет) время горения из снимка tile-entity. */
+    static boolean readLit(Block block) {
+        try {
+            BlockData data = block.getBlockData();
+            if (data instanceof Lightable l) return l.isLit();
+        } catch (Throwable ignored) {}
+        try {
+            BlockState state = block.getState();
+            if (state instanceof Furnace f) return f.getBurnTime() > 0;
+        } catch (Throwable ignored) {}
+        return false;
+    }
+
+    private LongObjectHashMap<Boolean> chunkFor(Block block, boolean create) {
+        UUID uid = block.getWorld().getUID();
+        LongObjectHashMap<LongObjectHashMap<Boolean>> byChunk = worlds.get(uid);
+        if (byChunk == null) {
+            if (!create) return null;
+            byChunk = new LongObjectHashMap<>();
+            worlds.put(uid, byChunk);
+        }
+        long ck = BlockKeys.chunkKeyOfBlock(block.getX(), block.getZ());
+        LongObjectHashMap<Boolean> chunk = byChunk.get(ck);
+        if (chunk == null && create) {
+            chunk = new LongObjectHashMap<>(8);
+            byChunk.put(ck, chunk);
+        }
+        return chunk;
+    }
+}
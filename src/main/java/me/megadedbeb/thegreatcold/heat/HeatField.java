@@ -0,0 +1,153 @@
+package me.megadedbeb.thegreatcold.heat;
+
+import me.megadedbeb.thegreatcold.util.BlockKeys;
+import me.megadedbeb.thegreatcold.util.LongObjectHashMap;
+
+import java.util.Arrays;
+
+/**
+ * Предрасчитанное «тепловое поле» одного мира: для каждой секции чанка 16x16x16,
+ * затронутой хотя бы одним источником, хранится битсет (long[64] = 4096 бит) прогретых блоков.
+ *
+ * Запрос «тепло ли здесь» — один поиск секции и одна проверка бита.
+ * Поле перестраивается только в секциях, которые задевает добавленный/удалённый источник.
+ *
+ * Как и прежний поиск по регионам, источник греет только свой чанк и соседние (3x3),
+ * даже если радиус больше 16 — поэтому штамп обрезается по этим чанкам.
+ */
+final class HeatField {
+    private static final int WORDS_PER_SECTION = 64;
+
+    private final LongObjectHashMap<long[]> sections = new LongObjectHashMap<>();
+    private final int minY;
+    private final int maxY; // включительно
+
+    HeatField(int minY, int maxY) {
+        this.minY = minY;
+        this.maxY = maxY;
+    }
+
+    boolean isHeated(int x, int y, int z) {
+        long[] bits = sections.get(BlockKeys.sectionKey(x >> 4, y >> 4, z >> 4));
+        if (bits == null) return false;
+        int idx = bitIndex(x, y, z);
+        return (bits[idx >>> 6] & (1L << idx)) != 0;
+    }
+
+    /** Отмечает куб источника в поле. */
+    void stamp(int sx, int sy, int sz, int radius) {
+        stamp(sx, sy, sz, radius, null);
+    }
+
+    /**
+     * Отмечает куб источника, но только в секциях из {@code only} (если не null).
+     * Используется при пересборке после удаления, чтобы не трогать чужие секции.
+     */
+    private void stamp(int sx, int sy, int sz, int radius, LongObjectHashMap<long[]> only) {
+        if (radius < 0) return;
+        int scx = sx >> 4, scz = sz >> 4;
+        // обрезка по 3x3 чанкам вокруг источника и по высоте мира
+        int x0 = Math.max(sx - radius, (scx - 1) << 4), x1 = Math.min(sx + radius, ((scx + 2) << 4) - 1);
+        int z0 = Math.max(sz - radius, (scz - 1) << 4), z1 = Math.min(sz + radius, ((scz + 2) << 4) - 1);
+        int y0 = Math.max(sy - radius, minY), y1 = Math.min(sy + radius, maxY);
+        if (y0 > y1) return;
+
+        for (int cx = x0 >> 4; cx <= x1 >> 4; cx++) {
+            int bx0 = Math.max(x0, cx << 4), bx1 = Math.min(x1, (cx << 4) + 15);
+            for (int cz = z0 >> 4; cz <= z1 >> 4; cz++) {
+                int bz0 = Math.max(z0, cz << 4), bz1 = Math.min(z1, (cz << 4) + 15);
+                for (int cy = y0 >> 4; cy <= y1 >> 4; cy++) {
+                    long key = BlockKeys.sectionKey(cx, cy, cz);
+                    long[] bits;
+                    if (only != null) {
+                        bits = only.get(key);
+                        if (bits == null) continue;
+                    } else {
+                        bits = sections.get(key);
+                        if (bits == null) {
+                            bits = new long[WORDS_PER_SECTION];
+                            sections.put(key, bits);
+                        }
+                    }
+                    int by0 = Math.max(y0, cy << 4), by1 = Math.min(y1, (cy << 4) + 15);
+                    fillBox(bits, bx0 & 15, bx1 & 15, by0 & 15, by1 & 15, bz0 & 15, bz1 & 15);
+                }
+            }
+        }
+    }
+
+    /**
+     * Пересобирает секции, которые задевал удалённый источник: обнуляет их
+     * и заново отмечает все оставшиеся источники из окрестности (5x5 чанков).
+     */
+    void rebuildAround(int sx, int sy, int sz, int radius, HeatSourceIndex index) {
+        if (radius < 0) return;
+        int scx = sx >> 4, scz = sz >> 4;
+        int x0 = Math.max(sx - radius, (scx - 1) << 4), x1 = Math.min(sx + radius, ((scx + 2) << 4) - 1);
+        int z0 = Math.max(sz - radius, (scz - 1) << 4), z1 = Math.min(sz + radius, ((scz + 2) << 4) - 1);
+        int y0 = Math.max(sy - radius, minY), y1 = Math.min(sy + radius, maxY);
+        if (y0 > y1) return;
+
+        LongObjectHashMap<long[]> affected = new LongObjectHashMap<>();
+        for (int cx = x0 >> 4; cx <= x1 >> 4; cx++) {
+            for (int cz = z0 >> 4; cz <= z1 >> 4; cz++) {
+                for (int cy = y0 >> 4; cy <= y1 >> 4; cy++) {
+                    long key = BlockKeys.sectionKey(cx, cy, cz);
+                    long[] bits = sections.get(key);
+                    if (bits == null) continue;
+                    Arrays.fill(bits, 0L);
+                    affected.put(key, bits);
+                }
+            }
+        }
+        if (affected.isEmpty()) return;
+
+        // секцию в чанке C могут греть источники из чанков C±1, т.е. из 5x5 вокруг удалённого
+        for (int cx = scx - 2; cx <= scx + 2; cx++) {
+            for (int cz = scz - 2; cz <= scz + 2; cz++) {
+                HeatSourceIndex.ChunkBucket bucket = index.getChunk(cx, cz);
+                if (bucket == null) continue;
+                for (int i = 0; i < bucket.size; i++) {
+                    long p = bucket.positions[i];
+                    stamp(BlockKeys.blockX(p), BlockKeys.blockY(p), BlockKeys.blockZ(p), bucket.radii[i], affected);
+                }
+            }
+        }
+
+        // секции, оставшиеся пустыми, убираем из поля
+        for (int cx = x0 >> 4; cx <= x1 >> 4; cx++) {
+            for (int cz = z0 >> 4; cz <= z1 >> 4; cz++) {
+                for (int cy = y0 >> 4; cy <= y1 >> 4; cy++) {
+                    long key = BlockKeys.sectionKey(cx, cy, cz);
+                    long[] bits = affected.get(key);
+                    if (bits != null && isEmpty(bits)) sections.remove(key);
+                }
+            }
+        }
+    }
+
+    int sectionCount() { return sections.size(); }
+
+    void clear() { sections.clear(); }
+
+    private static int bitIndex(int x, int y, int z) {
+        return ((y & 15) << 8) | ((z & 15) << 4) | (x & 15);
+    }
+
+    /** Заполняет параллелепипед в локальных координатах секции; одна строка x = один отрезок бит в слове. */
+    private static void fillBox(long[] bits, int lx0, int lx1, int ly0, int ly1, int lz0, int lz1) {
+        // строка x (16 бит) целиком лежит внутри одного long: (y<<8 | z<<4) кратно 16
+        long rowMask = (-1L >>> (63 - lx1 + lx0)) << lx0;
+        for (int ly = ly0; ly <= ly1; ly++) {
+            for (int lz = lz0; lz <= lz1; lz++) {
+                int base = (ly << 8) | (lz << 4);
+                bits[base >>> 6] |= rowMask << (base & 63);
+            }
+        }
+    }
+
+    private static boolean isEmpty(long[] bits) {
+        for (long w : bits) if (w != 0) return false;
+        return true;
+    }
+}
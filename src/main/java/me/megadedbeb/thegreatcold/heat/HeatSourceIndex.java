@@ -0,0 +1,124 @@
+package me.megadedbeb.thegreatcold.heat;
+
+import me.megadedbeb.thegreatcold.util.BlockKeys;
+import me.megadedbeb.thegreatcold.util.LongObjectHashMap;
+
+import java.util.Arrays;
+
+/**
+ * Индекс природных источников тепла одного мира.
+ *
+ * chunkKey (упакованные cx/cz) -> компактные массивы упакованных позиций блоков и радиусов.
+ * Поверх списков поддерживается {@link HeatField} — битсеты прогретых блоков по секциям,
+ * так что isInside — одна проверка бита, сколько бы источников ни было рядом.
+ */
+final class HeatSourceIndex {
+
+    static final class ChunkBucket {
+        long[] positions = new long[4];
+        int[] radii = new int[4];
+        int size;
+        // счётчик изменений блоков в чанке (place/break/physics/explode) и его значение на момент
+        // последней проверки: если не сдвинулся — перепроверять источники чанка незачем
+        int modCount;
+        int validatedModCount;
+
+        int indexOf(long pos) {
+            for (int i = 0; i < size; i++) if (positions[i] == pos) return i;
+            return -1;
+        }
+
+        void add(long pos, int radius) {
+            if (size == positions.length) {
+                positions = Arrays.copyOf(positions, size << 1);
+                radii = Arrays.copyOf(radii, size << 1);
+            }
+            positions[size] = pos;
+            radii[size] = radius;
+            size++;
+        }
+
+        /** Удаляет элемент i, переставляя на его место последний (порядок не сохраняется). */
+        void removeAt(int i) {
+            int last = --size;
+            positions[i] = positions[last];
+            radii[i] = radii[last];
+        }
+    }
+
+    private final LongObjectHashMap<ChunkBucket> chunks = new LongObjectHashMap<>();
+    private final HeatField field;
+    private int sourceCount;
+
+    HeatSourceIndex(int minY, int maxY) {
+        this.field = new HeatField(minY, maxY);
+    }
+
+    /** @return true если источник добавлен (false — уже был в индексе). */
+    boolean add(int x, int y, int z, int radius) {
+        long ck = BlockKeys.chunkKeyOfBlock(x, z);
+        long pos = BlockKeys.blockKey(x, y, z);
+        ChunkBucket bucket = chunks.get(ck);
+        if (bucket == null) {
+            bucket = new ChunkBucket();
+            chunks.put(ck, bucket);
+        } else if (bucket.indexOf(pos) >= 0) {
+            return false;
+        }
+        bucket.add(pos, radius);
+        sourceCount++;
+        field.stamp(x, y, z, radius);
+        return true;
+    }
+
+    /** @return true если источник был в индексе и удалён. */
+    boolean remove(int x, int y, int z) {
+        long ck = BlockKeys.chunkKeyOfBlock(x, z);
+        ChunkBucket bucket = chunks.get(ck);
+        if (bucket == null) return false;
+        int i = bucket.indexOf(BlockKeys.blockKey(x, y, z));
+        if (i < 0) return false;
+        removeAt(ck, bucket, i);
+        return true;
+    }
+
+    void removeAt(long chunkKey, ChunkBucket bucket, int i) {
+        long pos = bucket.positions[i];
+        int radius = bucket.radii[i];
+        bucket.removeAt(i);
+        sourceCount--;
+        if (bucket.size == 0) chunks.remove(chunkKey);
+        field.rebuildAround(BlockKeys.blockX(pos), BlockKeys.blockY(pos), BlockKeys.blockZ(pos), radius, this);
+    }
+
+    boolean contains(int x, int y, int z) {
+        ChunkBucket bucket = chunks.get(BlockKeys.chunkKeyOfBlock(x, z));
+        return bucket != null && bucket.indexOf(BlockKeys.blockKey(x, y, z)) >= 0;
+    }
+
+    /** Отмечает изменение блока в чанке (только если в чанке есть источники). */
+    void markModified(int x, int z) {
+        ChunkBucket bucket = chunks.get(BlockKeys.chunkKeyOfBlock(x, z));
+        if (bucket != null) bucket.modCount++;
+    }
+
+    ChunkBucket getChunk(int cx, int cz) {
+        return chunks.get(BlockKeys.chunkKey(cx, cz));
+    }
+
+    /**
+     * Находится ли блок (x, y, z) в кубе радиуса хотя бы одного источника
+     * (источник греет только свой и соседние чанки, как и раньше).
+     */
+    boolean isInside(int x, int y, int z) {
+        return field.isHeated(x, y, z);
+    }
+
+    int size() { return sourceCount; }
+
+    void clear() {
+        chunks.clear();
+        field.clear();
+        sourceCount = 0;
+    }
+}
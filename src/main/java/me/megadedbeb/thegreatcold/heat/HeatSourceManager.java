@@ -2,9 +2,15 @@ package me.megadedbeb.thegreatcold.heat;
 
 import me.megadedbeb.thegreatcold.TheGreatColdPlugin;
 import me.megadedbeb.thegreatcold.data.DataManager;
+import me.megadedbeb.thegreatcold.util.BlockKeys;
+import me.megadedbeb.thegreatcold.util.ChunkScanFilter;
+import me.megadedbeb.thegreatcold.util.LongHashSet;
+import me.megadedbeb.thegreatcold.util.MaterialTable;
+import me.megadedbeb.thegreatcold.util.WorkerPool;
 import org.bukkit.*;
 import org.bukkit.block.Block;
 import org.bukkit.block.BlockState;
+import org.bukkit.block.data.Lightable;
 import org.bukkit.inventory.FurnaceInventory;
 import org.bukkit.scheduler.BukkitRunnable;
 import org.bukkit.event.EventHandler;
@@ -12,62 +18,95 @@ import org.bukkit.event.Listener;
 import org.bukkit.event.world.ChunkLoadEvent;
 import org.bukkit.event.world.WorldLoadEvent;
 import org.bukkit.event.world.ChunkUnloadEvent;
-import org.bukkit.scheduler.BukkitTask;
+import org.bukkit.event.world.WorldUnloadEvent;
 
 import java.util.*;
+import java.util.logging.Level;
 
 public class HeatSourceManager implements Listener {
-    private static final List<Material> HEAT_SOURCES = List.of(
-            Material.CAMPFIRE, Material.SOUL_CAMPFIRE, Material.LAVA, Material.MAGMA_BLOCK,
-            Material.FIRE, Material.FURNACE, Material.BLAST_FURNACE, Material.SMOKER
-    );
-
     private final TheGreatColdPlugin plugin;
     private final DataManager dataManager;
     private final CustomHeatManager customHeatManager; // integration for custom sources
 
-    // sourceKey -> region (sourceKey = world:x:y:z)
-    private final Map<String, HeatSourceRegion> activeRegions = new HashMap<>();
-
-    // chunkKey -> set of sourceKeys in that chunk (chunkKey = world:chunkX:chunkZ)
-    private final Map<String, Set<String>> chunkIndex = new HashMap<>();
-
-    // временные задачи инкрементного сканирования чанка (чтобы не нагружать сервер при загрузке мира)
-    // chunkKey -> BukkitTask
-    private final Map<String, BukkitTask> chunkScanTasks = new HashMap<>();
+    // worldUID -> примитивный индекс источников (packed chunk -> packed block positions + radii)
+    private final Map<UUID, HeatSourceIndex> indexes = new HashMap<>();
+
+    // кеш «горит/не горит» для печей вместо getState()+рефлексии на каждый вызов providesHeat
+    private final FurnaceLitTracker furnaceLit = new FurnaceLitTracker();
+
+    // worldUID -> позиции, ждущие перепроверки: physics-обновления одного блока за тик сливаются в одну проверку
+    private final Map<UUID, LongHashSet> dirtyBlocks = new HashMap<>();
+    private boolean dirtyFlushScheduled = false;
+
+    // единая очередь сканирования чанков с бюджетом времени на тик (вместо задачи на каждый чанк)
+    private final ChunkScanScheduler scanScheduler;
+    private final boolean asyncScan;
+
+    // предфильтр полного скана: состояния блоков, которые могут оказаться источником тепла
+    // (костры — только горящие; печи — все, т.к. providesHeat смотрит на время горения)
+    private final ChunkScanFilter heatScanFilter = ChunkScanFilter.builder()
+            .add(Material.CAMPFIRE, d -> ((Lightable) d).isLit())
+            .add(Material.SOUL_CAMPFIRE, d -> ((Lightable) d).isLit())
+            .add(Material.FURNACE)
+            .add(Material.BLAST_FURNACE)
+            .add(Material.SMOKER)
+            .add(Material.LAVA)
+            .add(Material.MAGMA_BLOCK)
+            .add(Material.FIRE)
+            .build();
 
     // validation interval (ticks). 600 ticks = 30s. Можно изменить при необходимости.
     private static final long VALIDATION_INTERVAL_TICKS = 600L;
+    // каждая N-я проверка — полная, без учёта счётчиков (на случай правок мира в обход событий)
+    private static final int FULL_VALIDATION_EVERY = 10;
+    private int validationPass = 0;
 
-    // Сколько колонн (x,z) чанка обрабатывать за тик при полном сканировании.
-    // 16 -> закончить скан одного чанка за ~16 тиков.
-    private static final int COLUMNS_PER_TICK = 16;
+    // фазы задачи сканирования чанка
+    private static final int PHASE_QUICK = 0;
+    private static final int PHASE_FULL = 1;
+    private static final int PHASE_COLUMNS = 2;
 
     public HeatSourceManager(TheGreatColdPlugin plugin, DataManager dataManager, CustomHeatManager customHeatManager) {
         this.plugin = plugin;
         this.dataManager = dataManager;
         this.customHeatManager = customHeatManager;
 
+        this.asyncScan = plugin.getConfigManager().isAsyncHeatScan();
+        this.scanScheduler = new ChunkScanScheduler(plugin, plugin.getConfigManager().getHeatScanBudgetNanos(), this::runScanStep);
+        this.scanScheduler.start();
+
         Bukkit.getPluginManager().registerEvents(this, plugin);
 
         // Мы больше не сохраняем natural heat sources в data.yml.
         // Очистим возможные старые записи в data.yml, чтобы не оставлять устаревшие записи.
         try {
             dataManager.clearSavedHeatSources();
-            dataManager.saveAll();
+            dataManager.markDirty();
         } catch (Throwable ignored) {}
 
         // Редкая проверка «здоровья» активных регионов, но только рядом с игроками
         startValidationTask();
+
+        // первичное заполнение индекса по уже загруженным чанкам
+        enqueueLoadedChunks();
     }
 
     public TheGreatColdPlugin getPlugin() { return this.plugin; }
 
+    /**
+     * Полная пересборка индекса: сбрасывает всё найденное и заново ставит в очередь все загруженные чанки.
+     * Дорого — вызывается только вручную (/greatcold rescanheat); смена этапа индекс не трогает.
+     */
     public void scanWorldForHeatSources() {
-        activeRegions.clear();
-        chunkIndex.clear();
+        indexes.clear();
+        furnaceLit.clear();
+        dirtyBlocks.clear();
+        scanScheduler.clear();
+        enqueueLoadedChunks();
+    }
 
-        // Запускаем инкрементное сканирование загруженных чанков (чтобы найти природные источники, лаву и т.п.)
+    // Запускаем инкрементное сканирование загруженных чанков (чтобы найти природные источники, лаву и т.п.)
+    private void enqueueLoadedChunks() {
         for (World world : Bukkit.getWorlds()) {
             for (Chunk chunk : world.getLoadedChunks()) {
                 scanChunkForHeat(chunk);
@@ -82,12 +121,9 @@ public class HeatSourceManager implements Listener {
 
     @EventHandler
     public void onChunkUnload(ChunkUnloadEvent e) {
-        // Отменяем фоновую задачу сканирования, если она есть
-        String ck = chunkKeyFor(e.getChunk());
-        BukkitTask t = chunkScanTasks.remove(ck);
-        if (t != null) {
-            try { t.cancel(); } catch (Throwable ignored) {}
-        }
+        // Убираем чанк из очереди сканирования, если он ещё там
+        scanScheduler.cancel(e.getWorld(), e.getChunk().getX(), e.getChunk().getZ());
+        furnaceLit.forgetChunk(e.getWorld().getUID(), e.getChunk().getX(), e.getChunk().getZ());
     }
 
     @EventHandler
@@ -95,70 +131,177 @@ public class HeatSourceManager implements Listener {
         for (Chunk c : e.getWorld().getLoadedChunks()) scanChunkForHeat(c);
     }
 
+    @EventHandler
+    public void onWorldUnload(WorldUnloadEvent e) {
+        if (e.isCancelled()) return;
+        indexes.remove(e.getWorld().getUID());
+        scanScheduler.cancelWorld(e.getWorld());
+        furnaceLit.forgetWorld(e.getWorld().getUID());
+        dirtyBlocks.remove(e.getWorld().getUID());
+    }
+
+    public void onDisable() {
+        scanScheduler.stop();
+    }
+
+    public int getScanQueueDepth() { return scanScheduler.getQueueDepth(); }
+    public long getScanLastTickNanos() { return scanScheduler.getLastTickNanos(); }
+    public int getScanLastTickSteps() { return scanScheduler.getLastTickSteps(); }
+    public long getScanCompletedChunks() { return scanScheduler.getCompletedJobs(); }
+    public long getScanBudgetNanos() { return scanScheduler.getBudgetNanos(); }
+
+    public int getIndexedSourceCount() {
+        int n = 0;
+        for (HeatSourceIndex index : indexes.values()) n += index.size();
+        return n;
+    }
+
+    private HeatSourceIndex indexFor(World world) {
+        return indexes.computeIfAbsent(world.getUID(), k -> new HeatSourceIndex(world.getMinHeight(), world.getMaxHeight() - 1));
+    }
+
     /**
-     * Сканирует один чанк. Для минимизации пикового нагрузки:
+     * Ставит чанк в общую очередь сканирования. Для минимизации пиковой нагрузки:
      * - Сначала делаем быструю проверку tile-entities и верхних слоёв (surface/near-surface).
-     * - Затем планируем полноск чанка, разбитый на небольшие порции (несколько колонн в тик).
+     * - Затем полный скан: в режиме async — по ChunkSnapshot в пуле потоков,
+     *   в режиме sync — по одной колонне (x,z) за шаг.
+     * Сколько шагов выполнить за тик, решает ChunkScanScheduler по бюджету времени.
      */
     private void scanChunkForHeat(Chunk chunk) {
         if (chunk == null || !chunk.isLoaded()) return;
-        String chunkKey = chunkKeyFor(chunk);
-        Set<String> existing = chunkIndex.get(chunkKey);
-        if (existing != null && !existing.isEmpty()) {
+        HeatSourceIndex index = indexes.get(chunk.getWorld().getUID());
+        // если в чанке уже есть известные источники — хватит быстрого скана
+        boolean full = index == null || index.getChunk(chunk.getX(), chunk.getZ()) == null;
+        scanScheduler.enqueue(chunk.getWorld(), chunk.getX(), chunk.getZ(), full);
+    }
+
+    /** Один шаг задачи сканирования (вызывается планировщиком). @return true — чанк обработан. */
+    private boolean runScanStep(ChunkScanScheduler.Job job) {
+        if (!job.world.isChunkLoaded(job.cx, job.cz)) return true;
+        Chunk chunk = job.world.getChunkAt(job.cx, job.cz);
+
+        if (job.phase == PHASE_QUICK) {
             quickScanChunk(chunk);
-            return;
+            if (!job.fullScan) return true;
+            job.phase = PHASE_FULL;
+            return false;
         }
 
-        if (chunkScanTasks.containsKey(chunkKey)) return;
+        if (job.phase == PHASE_FULL) {
+            if (asyncScan && scanChunkSnapshotAsync(chunk, job)) {
+                job.awaitingResult = true;
+                return false;
+            }
+            // по палитрам чанка: если ни одного подходящего состояния нет — полный скан не нужен
+            try {
+                if (!heatScanFilter.mayContain(chunk)) return true;
+            } catch (Throwable ignored) {}
+            job.phase = PHASE_COLUMNS;
+            job.column = 0;
+        }
 
-        quickScanChunk(chunk);
+        // синхронный режим: одна колонна за шаг
+        int x = job.column & 15;
+        int z = job.column >> 4;
+        job.column++;
+        int minY = job.world.getMinHeight();
+        int maxY = job.world.getMaxHeight();
+        for (int y = minY; y < maxY; y++) {
+            try {
+                Block block = chunk.getBlock(x, y, z);
+                if (MaterialTable.isHeatSource(block.getType()) && providesHeat(block)) {
+                    registerHeatSource(block);
+                }
+            } catch (Throwable ignored) {}
+        }
+        return job.column >= 256;
+    }
 
-        BukkitRunnable task = new BukkitRunnable() {
-            private int colIndex = 0; // 0..255 -> each maps to (x,z)
-            private final World world = chunk.getWorld();
-            private final int minY = (world != null) ? world.getMinHeight() : chunk.getWorld().getMinHeight();
-            private final int maxY = (world != null) ? world.getMaxHeight() : chunk.getWorld().getMaxHeight();
+    /**
+     * Полный скан чанка вне основного потока: снимок берётся здесь (в основном потоке),
+     * перебор блоков идёт в пуле, а в основной поток возвращается только короткий список
+     * кандидатов — их перепроверяем через providesHeat и регистрируем.
+     *
+     * @return false если пул недоступен (тогда вызывающий делает синхронный скан)
+     */
+    private boolean scanChunkSnapshotAsync(Chunk chunk, ChunkScanScheduler.Job job) {
+        WorkerPool pool = plugin.getWorkerPool();
+        if (pool == null || pool.isShutdown()) return false;
 
-            @Override
-            public void run() {
-                try {
-                    if (!chunk.isLoaded()) {
-                        cancel();
-                        chunkScanTasks.remove(chunkKey);
-                        return;
-                    }
-                    int processed = 0;
-                    while (processed < COLUMNS_PER_TICK && colIndex < 256) {
-                        int cx = colIndex % 16;
-                        int cz = colIndex / 16;
-                        colIndex++;
-                        processed++;
-
-                        for (int y = minY; y < maxY; y++) {
-                            try {
-                                Block block = chunk.getBlock(cx, y, cz);
-                                Material mat = block.getType();
-                                if (HEAT_SOURCES.contains(mat)) {
-                                    if (providesHeat(block)) {
-                                        registerHeatSource(block);
-                                    }
+        final World world = chunk.getWorld();
+        final ChunkSnapshot snapshot;
+        try {
+            snapshot = chunk.getChunkSnapshot(false, false, false);
+        } catch (Throwable t) {
+            return false;
+        }
+        final int minY = world.getMinHeight();
+        final int maxY = world.getMaxHeight();
+        final int baseX = chunk.getX() << 4;
+        final int baseZ = chunk.getZ() << 4;
+
+        boolean accepted = pool.submit(() -> {
+            long[] found = new long[8];
+            int count = 0;
+            boolean ok = false;
+            try {
+                if (heatScanFilter.mayContain(snapshot)) {
+                    for (int sectionY = minY; sectionY < maxY; sectionY += 16) {
+                        // секции из одного воздуха пропускаем целиком
+                        if (ChunkScanFilter.isSectionEmpty(snapshot, sectionY, minY)) continue;
+                        int topY = Math.min(sectionY + 16, maxY);
+                        for (int y = sectionY; y < topY; y++) {
+                            for (int z = 0; z < 16; z++) {
+                                for (int x = 0; x < 16; x++) {
+                                    if (!MaterialTable.isHeatSource(snapshot.getBlockType(x, y, z))) continue;
+                                    if (count == found.length) found = Arrays.copyOf(found, count << 1);
+                                    found[count++] = BlockKeys.blockKey(baseX + x, y, baseZ + z);
                                 }
-                            } catch (Throwable ignored) {}
+                            }
                         }
                     }
-                    if (colIndex >= 256) {
-                        cancel();
-                        chunkScanTasks.remove(chunkKey);
-                    }
-                } catch (Throwable t) {
-                    try { cancel(); } catch (Throwable ignored) {}
-                    chunkScanTasks.remove(chunkKey);
+                }
+                ok = true;
+            } catch (Throwable t) {
+                plugin.getLogger().log(Level.WARNING,
+                        "Ошибка скана чанка " + world.getName() + " " + (baseX >> 4) + "," + (baseZ >> 4), t);
+            } finally {
+                // задача ждёт результата (awaitingResult) — её надо завершить в любом случае,
+                // иначе чанк навсегда останется «в очереди» и новые полные сканы будут отклоняться
+                final long[] candidates = found;
+                final int n = ok ? count : 0;
+                try {
+                    Bukkit.getScheduler().runTask(plugin, () -> {
+                        try {
+                            applySnapshotCandidates(job, candidates, n);
+                        } finally {
+                            scanScheduler.complete(job);
+                        }
+                    });
+                } catch (Throwable ignored) {
+                    // плагин выключается — планировщик очищается в stop()
                 }
             }
-        };
+        });
+        return accepted;
+    }
 
-        BukkitTask bt = task.runTaskTimer(plugin, 0L, 1L);
-        chunkScanTasks.put(chunkKey, bt);
+    private void applySnapshotCandidates(ChunkScanScheduler.Job job, long[] candidates, int n) {
+        // задачу завершает вызывающий (finally) — после записи результатов, чтобы повторная постановка
+        // того же чанка не проскочила, пока пишутся устаревшие кандидаты
+        if (!scanScheduler.isCurrent(job)) return; // чанк выгружен или скан перезапущен
+        World world = job.world;
+        if (!world.isChunkLoaded(job.cx, job.cz)) return;
+        for (int i = 0; i < n; i++) {
+            long pos = candidates[i];
+            try {
+                Block block = world.getBlockAt(BlockKeys.blockX(pos), BlockKeys.blockY(pos), BlockKeys.blockZ(pos));
+                // блок мог измениться, пока шёл скан
+                if (MaterialTable.isHeatSource(block.getType()) && providesHeat(block)) {
+                    registerHeatSource(block);
+                }
+            } catch (Throwable ignored) {}
+        }
     }
 
     private void quickScanChunk(Chunk chunk) {
@@ -171,7 +314,7 @@ public class HeatSourceManager implements Listener {
                     Block b = tile.getBlock();
                     if (b == null) continue;
                     Material m = b.getType();
-                    if (HEAT_SOURCES.contains(m) && providesHeat(b)) {
+                    if (MaterialTable.isHeatSource(m) && providesHeat(b)) {
                         registerHeatSource(b);
                     }
                 } catch (Throwable ignored) {}
@@ -188,7 +331,7 @@ public class HeatSourceManager implements Listener {
                     for (int y = topY; y >= fromY; y--) {
                         try {
                             Block b = chunk.getBlock(x, y, z);
-                            if (HEAT_SOURCES.contains(b.getType()) && providesHeat(b)) {
+                            if (MaterialTable.isHeatSource(b.getType()) && providesHeat(b)) {
                                 registerHeatSource(b);
                                 break;
                             }
@@ -209,38 +352,31 @@ public class HeatSourceManager implements Listener {
     }
 
     private void validateRegionsNearPlayers() {
-        Set<String> chunksToCheck = new HashSet<>();
+        boolean full = (++validationPass % FULL_VALIDATION_EVERY) == 0;
         for (org.bukkit.entity.Player p : Bukkit.getOnlinePlayers()) {
-            Chunk c = p.getLocation().getChunk();
+            World world = p.getWorld();
+            HeatSourceIndex index = indexes.get(world.getUID());
+            if (index == null || index.size() == 0) continue;
+            Location loc = p.getLocation();
+            int pcx = loc.getBlockX() >> 4;
+            int pcz = loc.getBlockZ() >> 4;
             for (int dx = -1; dx <= 1; dx++) {
                 for (int dz = -1; dz <= 1; dz++) {
-                    chunksToCheck.add(c.getWorld().getName() + ":" + (c.getX() + dx) + ":" + (c.getZ() + dz));
-                }
-            }
-        }
-        Set<String> sourcesToCheck = new HashSet<>();
-        for (String chunkKey : chunksToCheck) {
-            Set<String> s = chunkIndex.get(chunkKey);
-            if (s != null) sourcesToCheck.addAll(s);
-        }
-        List<String> toRemove = new ArrayList<>();
-        for (String sourceKey : sourcesToCheck) {
-            HeatSourceRegion region = activeRegions.get(sourceKey);
-            if (region == null) continue;
-            Block block = region.getCenter().getBlock();
-            if (!HEAT_SOURCES.contains(block.getType()) || !providesHeat(block)) {
-                toRemove.add(sourceKey);
-            }
-        }
-        for (String key : toRemove) {
-            HeatSourceRegion removed = activeRegions.remove(key);
-            if (removed != null) {
-                // do NOT persist or remove persisted data for natural sources — we don't persist them
-                String ck = chunkKeyFor(removed.getCenter().getChunk());
-                Set<String> set = chunkIndex.get(ck);
-                if (set != null) {
-                    set.remove(key);
-                    if (set.isEmpty()) chunkIndex.remove(ck);
+                    int cx = pcx + dx, cz = pcz + dz;
+                    HeatSourceIndex.ChunkBucket bucket = index.getChunk(cx, cz);
+                    if (bucket == null || !world.isChunkLoaded(cx, cz)) continue;
+                    // чанк не менялся с прошлой проверки — пропускаем
+                    if (!full && bucket.modCount == bucket.validatedModCount) continue;
+                    bucket.validatedModCount = bucket.modCount;
+                    // идём с конца: removeAt переставляет последний элемент на место удалённого
+                    for (int i = bucket.size - 1; i >= 0; i--) {
+                        long pos = bucket.positions[i];
+                        Block block = world.getBlockAt(BlockKeys.blockX(pos), BlockKeys.blockY(pos), BlockKeys.blockZ(pos));
+                        if (!MaterialTable.isHeatSource(block.getType()) || !providesHeatUncached(block)) {
+                            // do NOT persist or remove persisted data for natural sources — we don't persist them
+                            index.removeAt(BlockKeys.chunkKey(cx, cz), bucket, i);
+                        }
+                    }
                 }
             }
         }
@@ -256,64 +392,145 @@ public class HeatSourceManager implements Listener {
                 return false;
             }
         }
-        if (mat == Material.FURNACE || mat == Material.SMOKER || mat == Material.BLAST_FURNACE) {
-            BlockState state = block.getState();
-            try {
-                try {
-                    var m = state.getClass().getMethod("getBurnTime");
-                    Object res = m.invoke(state);
-                    if (res instanceof Number) {
-                        if (((Number) res).intValue() > 0) return true;
-                    }
-                } catch (NoSuchMethodException ignored) {}
-                try {
-                    int blockLight = block.getLightLevel() - block.getLightFromSky();
-                    if (blockLight > 0) return true;
-                } catch (Throwable ignored) {}
-                return false;
-            } catch (Throwable ignored) {
-                return false;
-            }
+        if (FurnaceLitTracker.isFurnace(mat)) {
+            // кеш из событий; при промахе — block-data Lit, снимок tile-entity только в крайнем случае
+            return furnaceLit.isLit(block);
         }
         return mat == Material.LAVA || mat == Material.MAGMA_BLOCK || mat == Material.FIRE;
     }
 
+    /**
+     * Как providesHeat, но состояние печи читается из мира и записывается в кеш: у погасшей печи
+     * нет своего события, и только проверка может заметить пропущенный переход «горит -> нет».
+     */
+    private boolean providesHeatUncached(Block block) {
+        if (FurnaceLitTracker.isFurnace(block.getType())) {
+            boolean lit = FurnaceLitTracker.readLit(block);
+            furnaceLit.put(block, lit);
+            return lit;
+        }
+        return providesHeat(block);
+    }
+
     public void registerHeatSource(Block block) {
-        if (!HEAT_SOURCES.contains(block.getType())) return;
+        if (!MaterialTable.isHeatSource(block.getType())) return;
         if (!providesHeat(block)) {
             removeHeatSource(block);
             return;
         }
-        String sourceKey = keyFor(block.getLocation());
-        if (activeRegions.containsKey(sourceKey)) return;
+        HeatSourceIndex index = indexFor(block.getWorld());
+        if (index.contains(block.getX(), block.getY(), block.getZ())) return;
 
         HeatSourceType type = HeatSourceType.fromMaterial(block.getType());
         int radius = plugin.getConfigManager().getHeatRadius(type);
-        HeatSourceRegion region = new HeatSourceRegion(block.getLocation(), type, radius);
-        activeRegions.put(sourceKey, region);
-
-        String chunkKey = chunkKeyFor(block.getLocation().getChunk());
-        chunkIndex.computeIfAbsent(chunkKey, k -> new HashSet<>()).add(sourceKey);
+        index.add(block.getX(), block.getY(), block.getZ(), radius);
 
         // IMPORTANT: do NOT persist natural heat blocks to data.yml (they are discovered dynamically)
     }
 
     public void removeHeatSource(Block block) {
-        String sourceKey = keyFor(block.getLocation());
-        HeatSourceRegion removed = activeRegions.remove(sourceKey);
-        if (removed != null) {
-            String ck = chunkKeyFor(removed.getCenter().getChunk());
-            Set<String> set = chunkIndex.get(ck);
-            if (set != null) {
-                set.remove(sourceKey);
-                if (set.isEmpty()) chunkIndex.remove(ck);
-            }
-            // we intentionally do not touch persistent storage for natural sources
+        HeatSourceIndex index = indexes.get(block.getWorld().getUID());
+        if (index == null) return;
+        // we intentionally do not touch persistent storage for natural sources
+        index.remove(block.getX(), block.getY(), block.getZ());
+    }
+
+    /**
+     * Печь сменила состояние горения (FurnaceBurnEvent и т.п.): обновляем кеш
+     * и, если состояние действительно изменилось, индекс.
+     */
+    public void updateFurnaceLit(Block block, boolean lit) {
+        if (block == null || !FurnaceLitTracker.isFurnace(block.getType())) return;
+        if (!furnaceLit.put(block, lit)) return;
+        if (lit) {
+            registerHeatSource(block);
         } else {
-            // nothing persisted for natural sources -> nothing to remove
+            removeHeatSource(block);
+        }
+    }
+
+    /** Перечитать состояние печи из block-data (дёшево, без снимка tile-entity). */
+    public void refreshFurnaceLit(Block block) {
+        if (block == null || !FurnaceLitTracker.isFurnace(block.getType())) return;
+        updateFurnaceLit(block, FurnaceLitTracker.readLit(block));
+    }
+
+    /** Блок на позиции сменился (поставлен/сломан) — кешированное состояние печи больше не верно. */
+    public void forgetFurnaceLit(Block block) {
+        if (block != null) furnaceLit.forget(block);
+    }
+
+    /**
+     * Обработка BlockPhysicsEvent. Сначала дешёвый фильтр без чтения состояния блока:
+     * интересны только материалы-источники (changedType — тип обновляемого блока),
+     * уже известные источники и печи из кеша (как источник обновления — так видна смена Lit).
+     * Прошедшие фильтр позиции копятся в наборе и проверяются один раз в следующем тике.
+     */
+    public void onBlockPhysics(Block block, Material changedType, Block source) {
+        UUID uid = block.getWorld().getUID();
+        int x = block.getX(), y = block.getY(), z = block.getZ();
+        HeatSourceIndex index = indexes.get(uid);
+        if (index != null) {
+            index.markModified(x, z);
+            if (source != null) index.markModified(source.getX(), source.getZ());
+        }
+        if (MaterialTable.isHeatSource(changedType) || isIndexed(uid, x, y, z)) markDirty(uid, x, y, z);
+        if (source != null) {
+            int sx = source.getX(), sy = source.getY(), sz = source.getZ();
+            if ((sx != x || sy != y || sz != z) && furnaceLit.isTracked(uid, sx, sy, sz)) markDirty(uid, sx, sy, sz);
+        }
+    }
+
+    /** Блок в чанке изменился (place/break/explode) — чанк попадёт в следующую проверку. */
+    public void markChunkModified(Block block) {
+        if (block == null) return;
+        HeatSourceIndex index = indexes.get(block.getWorld().getUID());
+        if (index != null) index.markModified(block.getX(), block.getZ());
+    }
+
+    private boolean isIndexed(UUID world, int x, int y, int z) {
+        HeatSourceIndex index = indexes.get(world);
+        return index != null && index.contains(x, y, z);
+    }
+
+    private void markDirty(UUID world, int x, int y, int z) {
+        dirtyBlocks.computeIfAbsent(world, k -> new LongHashSet()).add(BlockKeys.blockKey(x, y, z));
+        if (!dirtyFlushScheduled) {
+            dirtyFlushScheduled = true;
+            try {
+                Bukkit.getScheduler().runTask(plugin, this::flushDirtyBlocks);
+            } catch (Throwable t) {
+                dirtyFlushScheduled = false;
+            }
+        }
+    }
+
+    private void flushDirtyBlocks() {
+        dirtyFlushScheduled = false;
+        for (Map.Entry<UUID, LongHashSet> entry : dirtyBlocks.entrySet()) {
+            LongHashSet set = entry.getValue();
+            if (set.isEmpty()) continue;
+            World world = Bukkit.getWorld(entry.getKey());
+            if (world != null) set.forEach(pos -> recheckBlock(world, pos));
+            set.clear();
         }
     }
 
+    private void recheckBlock(World world, long pos) {
+        int x = BlockKeys.blockX(pos), y = BlockKeys.blockY(pos), z = BlockKeys.blockZ(pos);
+        if (!world.isChunkLoaded(x >> 4, z >> 4)) return;
+        try {
+            Block block = world.getBlockAt(x, y, z);
+            if (FurnaceLitTracker.isFurnace(block.getType())) {
+                furnaceLit.put(block, FurnaceLitTracker.readLit(block));
+            } else {
+                furnaceLit.forget(block);
+            }
+            if (providesHeat(block)) registerHeatSource(block);
+            else removeHeatSource(block);
+        } catch (Throwable ignored) {}
+    }
+
     public boolean isPlayerInHeat(org.bukkit.entity.Player player) {
         return isLocationInHeat(player.getLocation());
     }
@@ -327,27 +544,9 @@ public class HeatSourceManager implements Listener {
         // First, check custom heat sources (they have larger zones and apply even when their block isn't loaded)
         if (customHeatManager != null && customHeatManager.isLocationInCustomHeat(loc)) return true;
 
-        Chunk chunk = loc.getChunk();
-        int chunkRadius = 1; // смотрим соседние чанки
-        for (int dx = -chunkRadius; dx <= chunkRadius; dx++) {
-            for (int dz = -chunkRadius; dz <= chunkRadius; dz++) {
-                String ck = loc.getWorld().getName() + ":" + (chunk.getX() + dx) + ":" + (chunk.getZ() + dz);
-                Set<String> set = chunkIndex.get(ck);
-                if (set == null || set.isEmpty()) continue;
-                for (String sourceKey : set) {
-                    HeatSourceRegion region = activeRegions.get(sourceKey);
-                    if (region != null && region.isInside(loc)) return true;
-                }
-            }
-        }
-        return false;
-    }
-
-    private String keyFor(Location loc) {
-        return loc.getWorld().getName() + ":" + loc.getBlockX() + ":" + loc.getBlockY() + ":" + loc.getBlockZ();
-    }
-
-    private String chunkKeyFor(Chunk c) {
-        return c.getWorld().getName() + ":" + c.getX() + ":" + c.getZ();
+        HeatSourceIndex index = indexes.get(loc.getWorld().getUID());
+        if (index == null) return false;
+        // одна проверка бита в предрасчитанном поле секции
+        return index.isInside(loc.getBlockX(), loc.getBlockY(), loc.getBlockZ());
     }
 }
\ No newline at end of file
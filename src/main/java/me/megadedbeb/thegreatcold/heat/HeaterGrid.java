@@ -0,0 +1,98 @@
+package me.megadedbeb.thegreatcold.heat;
+
+import me.megadedbeb.thegreatcold.util.BlockKeys;
+import me.megadedbeb.thegreatcold.util.LongObjectHashMap;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Равномерная сетка по x/z (ячейка 64x64 блока) над кубами зон кастомных обогревателей.
+ *
+ * Обогреватель заносится во все ячейки, которые задевает его куб (мегапечь с радиусом 121 — ~25 ячеек),
+ * поэтому точечный запрос смотрит только одну ячейку и проверяет лишь тех, чей куб может содержать точку.
+ * Отдельно ведётся индекс «чанк блока обогревателя -> обогреватели» для событий загрузки/выгрузки чанков.
+ * Только основной поток.
+ */
+final class HeaterGrid {
+    private static final int CELL_SHIFT = 6; // 64 блока
+
+    // worldUID -> packed (cellX, cellZ) -> обогреватели, чьи кубы задевают ячейку
+    private final Map<UUID, LongObjectHashMap<List<CustomHeatSource>>> worlds = new HashMap<>();
+    // worldUID -> chunkKey -> обогреватели, стоящие в этом чанке
+    private final Map<UUID, LongObjectHashMap<List<CustomHeatSource>>> chunks = new HashMap<>();
+
+    void add(CustomHeatSource s) {
+        LongObjectHashMap<List<CustomHeatSource>> byChunk = chunks.computeIfAbsent(s.getWorldId(), k -> new LongObjectHashMap<>());
+        long ck = BlockKeys.chunkKeyOfBlock(s.getBlockX(), s.getBlockZ());
+        List<CustomHeatSource> inChunk = byChunk.get(ck);
+        if (inChunk == null) {
+            inChunk = new ArrayList<>(2);
+            byChunk.put(ck, inChunk);
+        }
+        inChunk.add(s);
+
+        LongObjectHashMap<List<CustomHeatSource>> cells = worlds.computeIfAbsent(s.getWorldId(), k -> new LongObjectHashMap<>());
+        int r = s.getRadius();
+        for (int cx = (s.getBlockX() - r) >> CELL_SHIFT; cx <= (s.getBlockX() + r) >> CELL_SHIFT; cx++) {
+            for (int cz = (s.getBlockZ() - r) >> CELL_SHIFT; cz <= (s.getBlockZ() + r) >> CELL_SHIFT; cz++) {
+                long key = BlockKeys.chunkKey(cx, cz);
+                List<CustomHeatSource> list = cells.get(key);
+                if (list == null) {
+                    list = new ArrayList<>(2);
+                    cells.put(key, list);
+                }
+                list.add(s);
+            }
+        }
+    }
+
+    void remove(CustomHeatSource s) {
+        LongObjectHashMap<List<CustomHeatSource>> byChunk = chunks.get(s.getWorldId());
+        if (byChunk != null) {
+            long ck = BlockKeys.chunkKeyOfBlock(s.getBlockX(), s.getBlockZ());
+            List<CustomHeatSource> inChunk = byChunk.get(ck);
+            if (inChunk != null) {
+                inChunk.remove(s);
+                if (inChunk.isEmpty()) byChunk.remove(ck);
+            }
+            if (byChunk.isEmpty()) chunks.remove(s.getWorldId());
+        }
+
+        LongObjectHashMap<List<CustomHeatSource>> cells = worlds.get(s.getWorldId());
+        if (cells == null) return;
+        int r = s.getRadius();
+        for (int cx = (s.getBlockX() - r) >> CELL_SHIFT; cx <= (s.getBlockX() + r) >> CELL_SHIFT; cx++) {
+            for (int cz = (s.getBlockZ() - r) >> CELL_SHIFT; cz <= (s.getBlockZ() + r) >> CELL_SHIFT; cz++) {
+                long key = BlockKeys.chunkKey(cx, cz);
+                List<CustomHeatSource> list = cells.get(key);
+                if (list == null) continue;
+                list.remove(s);
+                if (list.isEmpty()) cells.remove(key);
+            }
+        }
+        if (cells.isEmpty()) worlds.remove(s.getWorldId());
+    }
+
+    /** Кандидаты для точки (x, z): обогреватели, чьи кубы задевают её ячейку; null — никого. */
+    List<CustomHeatSource> candidates(UUID world, int x, int z) {
+        LongObjectHashMap<List<CustomHeatSource>> cells = worlds.get(world);
+        if (cells == null) return null;
+        return cells.get(BlockKeys.chunkKey(x >> CELL_SHIFT, z >> CELL_SHIFT));
+    }
+
+    /** Обогреватели, стоящие в чанке (cx, cz); null — никого. Список живой — не менять при обходе. */
+    List<CustomHeatSource> inChunk(UUID world, int cx, int cz) {
+        LongObjectHashMap<List<CustomHeatSource>> byChunk = chunks.get(world);
+        if (byChunk == null) return null;
+        return byChunk.get(BlockKeys.chunkKey(cx, cz));
+    }
+
+    void clear() {
+        worlds.clear();
+        chunks.clear();
+    }
+}
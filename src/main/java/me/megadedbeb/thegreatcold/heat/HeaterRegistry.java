@@ -0,0 +1,160 @@
+package me.megadedbeb.thegreatcold.heat;
+
+import org.bukkit.ChatColor;
+import org.bukkit.Material;
+import org.bukkit.Particle;
+import org.bukkit.configuration.ConfigurationSection;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Типы кастомных обогревателей, загруженные из config.yml (heaters + heater_fuel).
+ *
+ * Собирается один раз при запуске; новый тип обогревателя — это новая секция в heaters,
+ * без изменений кода. Тип с ошибкой в описании пропускается с предупреждением в лог.
+ */
+public final class HeaterRegistry {
+    private final Map<String, HeaterType> types = new LinkedHashMap<>();
+    private final Map<String, HeaterType> byAlias = new HashMap<>();
+
+    private HeaterRegistry() {}
+
+    /** Тип по ключу (как в data.yml / PDC предмета), null — нет такого. */
+    public HeaterType get(String id) {
+        return id == null ? null : types.get(id);
+    }
+
+    /** Тип по ключу или короткому имени (для команд), без учёта регистра. */
+    public HeaterType find(String name) {
+        if (name == null) return null;
+        String n = name.toLowerCase(Locale.ROOT);
+        HeaterType t = types.get(n);
+        return t != null ? t : byAlias.get(n);
+    }
+
+    public Collection<HeaterType> all() {
+        return Collections.unmodifiableCollection(types.values());
+    }
+
+    static HeaterRegistry load(ConfigurationSection heaters, ConfigurationSection fuelSection, Logger log) {
+        HeaterRegistry reg = new HeaterRegistry();
+        if (heaters == null) {
+            if (log != null) log.warning("В config.yml нет секции heaters — кастомные обогреватели отключены");
+            return reg;
+        }
+        Map<String, FuelTable> fuel = FuelTable.compileAll(fuelSection, log);
+        for (String id : heaters.getKeys(false)) {
+            ConfigurationSection sec = heaters.getConfigurationSection(id);
+            if (sec == null) continue;
+            try {
+                HeaterType t = parse(id, sec, fuel.getOrDefault(id, FuelTable.empty()));
+                reg.types.put(id, t);
+                for (String a : t.getAliases()) reg.byAlias.putIfAbsent(a.toLowerCase(Locale.ROOT), t);
+            } catch (IllegalArgumentException e) {
+                if (log != null) log.warning("heaters." + id + ": " + e.getMessage() + " — тип пропущен");
+            }
+        }
+        return reg;
+    }
+
+    private static HeaterType parse(String id, ConfigurationSection sec, FuelTable fuel) {
+        Material active = material(sec, "active_block", null);
+        Material inactive = material(sec, "inactive_block", Material.COAL_BLOCK);
+        Material place = material(sec, "place_block", inactive);
+        Material item = material(sec, "item", active);
+
+        String colorName = sec.getString("color", "GOLD");
+        ChatColor color;
+        try {
+            color = ChatColor.valueOf(colorName.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("неизвестный цвет " + colorName);
+        }
+
+        HeaterType.Activation activation;
+        String act = sec.getString("activation", "always");
+        try {
+            activation = HeaterType.Activation.valueOf(act.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("неизвестное условие работы " + act);
+        }
+
+        List<String> lore = new ArrayList<>();
+        for (String line : sec.getStringList("lore")) lore.add(ChatColor.translateAlternateColorCodes('&', line));
+
+        List<HeaterType.ParticleSpec> particles = new ArrayList<>();
+        for (Map<?, ?> m : sec.getMapList("particles")) particles.add(particle(m));
+
+        List<String> shape = null;
+        Map<Character, Material> ingredients = null;
+        ConfigurationSection recipe = sec.getConfigurationSection("recipe");
+        if (recipe != null) {
+            shape = recipe.getStringList("shape");
+            ConfigurationSection ing = recipe.getConfigurationSection("ingredients");
+            if (shape.isEmpty() || ing == null) throw new IllegalArgumentException("в рецепте нужны shape и ingredients");
+            ingredients = new HashMap<>();
+            for (String k : ing.getKeys(false)) {
+                if (k.length() != 1) throw new IllegalArgumentException("ключ ингредиента должен быть одним символом: " + k);
+                ingredients.put(k.charAt(0), material(ing, k, null));
+            }
+        }
+
+        return new HeaterType(id,
+                sec.getString("name", id),
+                color.toString(),
+                sec.getStringList("aliases"),
+                item,
+                lore,
+                Math.max(1, sec.getInt("radius", 15)),
+                Math.max(1L, sec.getLong("capacity_minutes", 60L)) * 60_000L,
+                active, inactive, place,
+                activation,
+                Math.max(1, sec.getInt("melt_per_pass", 64)),
+                particles,
+                Math.max(0, sec.getInt("ignite_radius", 0)),
+                sec.getBoolean("fuel_only", false),
+                fuel, shape, ingredients);
+    }
+
+    private static Material material(ConfigurationSection sec, String key, Material def) {
+        String v = sec.getString(key);
+        if (v == null) {
+            if (def == null) throw new IllegalArgumentException("не задан " + key);
+            return def;
+        }
+        Material m = Material.matchMaterial(v);
+        if (m == null) throw new IllegalArgumentException("неизвестный материал " + key + ": " + v);
+        return m;
+    }
+
+    // { particle: FLAME, dy: 0.9, count: 6, spread: [0.3, 0.2, 0.3], speed: 0.01 }
+    private static HeaterType.ParticleSpec particle(Map<?, ?> m) {
+        Object name = m.get("particle");
+        Particle p;
+        try {
+            p = Particle.valueOf(String.valueOf(name).toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("неизвестная частица " + name);
+        }
+        double ox = 0, oy = 0, oz = 0;
+        if (m.get("spread") instanceof List<?> l && l.size() == 3) {
+            ox = number(l.get(0), 0);
+            oy = number(l.get(1), 0);
+            oz = number(l.get(2), 0);
+        }
+        return new HeaterType.ParticleSpec(p, number(m.get("dy"), 0.9), (int) number(m.get("count"), 1),
+                ox, oy, oz, number(m.get("speed"), 0));
+    }
+
+    private static double number(Object o, double def) {
+        return o instanceof Number n ? n.doubleValue() : def;
+    }
+}
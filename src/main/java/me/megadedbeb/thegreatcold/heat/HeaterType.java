@@ -0,0 +1,102 @@
+package me.megadedbeb.thegreatcold.heat;
+
+import org.bukkit.Material;
+import org.bukkit.Particle;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Неизменяемое описание типа кастомного обогревателя (секция heaters в config.yml).
+ *
+ * Всё, чем типы отличаются друг от друга — радиус, ёмкость, топливо, блоки, частицы, таяние,
+ * условие работы, поджог вокруг, — читается отсюда, а не из сравнений строк типа.
+ */
+public final class HeaterType {
+
+    /** Когда обогреватель с топливом действительно греет. */
+    public enum Activation {
+        ALWAYS,
+        WATER_ABOVE // только если прямо над ним вода
+    }
+
+    /** Одна порция частиц горящего обогревателя (dy — высота над блоком). */
+    public record ParticleSpec(Particle particle, double dy, int count, double ox, double oy, double oz, double extra) {}
+
+    private final String id;
+    private final String name;
+    private final String color;
+    private final List<String> aliases;
+    private final Material item;
+    private final List<String> lore;
+    private final int radius;
+    private final long maxFuelMillis;
+    private final Material activeBlock;
+    private final Material inactiveBlock;
+    private final Material placeBlock;
+    private final Activation activation;
+    private final int maxMeltsPerPass;
+    private final List<ParticleSpec> particles;
+    private final int igniteRadius;
+    private final boolean fuelOnly;
+    private final FuelTable fuel;
+    private final List<String> recipeShape;
+    private final Map<Character, Material> recipeIngredients;
+
+    HeaterType(String id, String name, String color, List<String> aliases, Material item, List<String> lore,
+               int radius, long maxFuelMillis, Material activeBlock, Material inactiveBlock, Material placeBlock,
+               Activation activation, int maxMeltsPerPass, List<ParticleSpec> particles, int igniteRadius,
+               boolean fuelOnly, FuelTable fuel, List<String> recipeShape, Map<Character, Material> recipeIngredients) {
+        this.id = id;
+        this.name = name;
+        this.color = color;
+        this.aliases = List.copyOf(aliases);
+        this.item = item;
+        this.lore = List.copyOf(lore);
+        this.radius = radius;
+        this.maxFuelMillis = maxFuelMillis;
+        this.activeBlock = activeBlock;
+        this.inactiveBlock = inactiveBlock;
+        this.placeBlock = placeBlock;
+        this.activation = activation;
+        this.maxMeltsPerPass = maxMeltsPerPass;
+        this.particles = List.copyOf(particles);
+        this.igniteRadius = igniteRadius;
+        this.fuelOnly = fuelOnly;
+        this.fuel = fuel;
+        this.recipeShape = recipeShape == null ? null : List.copyOf(recipeShape);
+        this.recipeIngredients = recipeIngredients == null ? null : Map.copyOf(recipeIngredients);
+    }
+
+    /** Ключ типа: хранится в data.yml и в PDC предмета. */
+    public String getId() { return id; }
+    public String getName() { return name; }
+    /** Цвет названия у горящего обогревателя (код §), погасший — всегда голубой. */
+    public String getColor() { return color; }
+    public List<String> getAliases() { return aliases; }
+    public Material getItem() { return item; }
+    public List<String> getLore() { return lore; }
+    public int getRadius() { return radius; }
+    public long getMaxFuelMillis() { return maxFuelMillis; }
+    public Material getActiveBlock() { return activeBlock; }
+    public Material getInactiveBlock() { return inactiveBlock; }
+    /** Блок сразу после установки. */
+    public Material getPlaceBlock() { return placeBlock; }
+    public Activation getActivation() { return activation; }
+    public int getMaxMeltsPerPass() { return maxMeltsPerPass; }
+    public List<ParticleSpec> getParticles() { return particles; }
+    /** Радиус поджога блоков и сущностей вокруг горящего обогревателя, 0 — не поджигает. */
+    public int getIgniteRadius() { return igniteRadius; }
+    /** С блоком можно взаимодействовать только топливом (прочие клики отменяются). */
+    public boolean isFuelOnly() { return fuelOnly; }
+    /** Форма рецепта (строки по 3 символа) или null — без рецепта. */
+    public List<String> getRecipeShape() { return recipeShape; }
+    public Map<Character, Material> getRecipeIngredients() { return recipeIngredients; }
+
+    FuelTable getFuel() { return fuel; }
+
+    /** Стоит ли на месте обогревателя один из его блоков. */
+    public boolean isOwnBlock(Material m) {
+        return m == activeBlock || m == inactiveBlock || m == placeBlock;
+    }
+}
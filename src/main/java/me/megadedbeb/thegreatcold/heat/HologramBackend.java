@@ -0,0 +1,49 @@
+package me.megadedbeb.thegreatcold.heat;
+
+import org.bukkit.NamespacedKey;
+import org.bukkit.block.Block;
+import org.bukkit.entity.Entity;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Способ отображения табличек над кастомными обогревателями (название + полоса топлива).
+ *
+ * Ссылки на сущности хранятся в самом источнике (getNameLineEntity / getFuelLineEntity),
+ * UUID сохраняемых сущностей — там же (getNameLineId / getFuelLineId, пишутся в data.yml),
+ * последний отрисованный текст — тоже (getRenderedName / getRenderedFuelLine).
+ * Только основной поток.
+ */
+interface HologramBackend {
+
+    /** Прикреплены ли к источнику живые сущности таблички. */
+    boolean isAttached(CustomHeatSource s);
+
+    /**
+     * Создаёт или обновляет табличку. Блок источника загружен; текст трогается только там,
+     * где он отличается от последнего отрисованного.
+     */
+    void show(CustomHeatSource s, Block block, String sourceKey, String name, String fuelLine);
+
+    /** Убирает сущности таблички. */
+    void remove(CustomHeatSource s);
+
+    /**
+     * Плагин выключается: отпустить табличку. Сохраняемые сущности остаются в мире вместе с UUID
+     * в источнике (их подхватит следующий запуск), несохраняемые — убираются.
+     */
+    void release(CustomHeatSource s);
+
+    /**
+     * Сущности чанка загрузились: прикрепить свои сущности к источникам (owner: ключ источника -> источник),
+     * остальные с нашей меткой (дубликаты, сироты, другой способ отображения) — убрать.
+     */
+    void onEntitiesLoad(List<Entity> entities, Function<String, CustomHeatSource> owner);
+
+    /** holograms.backend: text_display (по умолчанию) или armor_stand (прежние стойки для брони). */
+    static HologramBackend create(String name, NamespacedKey holoKey) {
+        if ("armor_stand".equalsIgnoreCase(name)) return new ArmorStandHolograms(holoKey);
+        return new TextDisplayHolograms(holoKey);
+    }
+}
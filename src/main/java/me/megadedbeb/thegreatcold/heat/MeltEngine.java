@@ -0,0 +1,558 @@
+package me.megadedbeb.thegreatcold.heat;
+
+import me.megadedbeb.thegreatcold.TheGreatColdPlugin;
+import me.megadedbeb.thegreatcold.util.BlockKeys;
+import me.megadedbeb.thegreatcold.util.ChunkScanFilter;
+import me.megadedbeb.thegreatcold.util.WorkerPool;
+import org.bukkit.Bukkit;
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+
+/**
+ * Инкрементальное таяние снега/льда вокруг кастомных обогревателей.
+ *
+ * У каждого обогревателя есть битовая карта «расчищенных» колонок (x, z) его квадрата и курсор.
+ * Колонка читается сверху вниз по всей высоте куба обогревателя (пустые секции чанка пропускаются
+ * целиком); расчищенная колонка больше не читается, пока её не «испачкает» событие:
+ * образование снега/льда (снегопад, замерзание), установка блока, загрузка чанка.
+ * Колонки из таких событий попадают в кольцевой буфер и обрабатываются первыми.
+ *
+ * Поиск целей идёт не в основном потоке: проход набирает до MAX_CHUNKS_PER_PLAN чанков с нерасчищенными
+ * колонками, снимает их ChunkSnapshot и отдаёт в WorkerPool. Обратно приходит компактный план
+ * (упакованные позиции + ожидаемый материал), который основной поток применяет, перепроверяя,
+ * что блок всё ещё тот же.
+ *
+ * Вся работа основного потока (применение планов и запуск новых проходов) идёт из одной задачи
+ * раз в тик под общим бюджетом времени: планы применяются по кругу порциями по APPLY_SLICE блоков,
+ * проходы запускаются по кругу из очереди обогревателей, которым пора. Так ни один обогреватель
+ * не занимает тик целиком, а много обогревателей не срабатывают в один тик.
+ */
+final class MeltEngine {
+    // сколько чанков снимается за один проход обогревателя
+    private static final int MAX_CHUNKS_PER_PLAN = 16;
+    private static final int DIRTY_CAPACITY = 256;
+    // сколько блоков плана применяется за один ход, прежде чем очередь перейдёт к следующему обогревателю
+    private static final int APPLY_SLICE = 32;
+
+    private static final byte KIND_SNOW = 0;
+    private static final byte KIND_SNOW_BLOCK = 1;
+    private static final byte KIND_ICE = 2;
+
+    private final TheGreatColdPlugin plugin;
+    private final HeaterGrid grid;
+    private final ChunkScanFilter meltFilter;
+    private final Map<CustomHeatSource, MeltState> states = new IdentityHashMap<>();
+    private final long budgetNanos;
+    private final int passIntervalTicks;
+    // лёд растоплен в воду без физики — сообщаем менеджеру (вода над морским обогревателем)
+    private final Consumer<Block> onIceMelted;
+
+    // обогреватели, которым пора начать проход (по кругу)
+    private final ArrayDeque<MeltState> passQueue = new ArrayDeque<>();
+    // планы на применение (по кругу, порциями)
+    private final ArrayDeque<MeltPlan> applyQueue = new ArrayDeque<>();
+    private BukkitTask task;
+    private long tickNo;
+
+    // статистика для /greatcold stats
+    private int planning;
+    private long lastTickNanos;
+    private long meltedTotal;
+
+    MeltEngine(TheGreatColdPlugin plugin, HeaterGrid grid, long budgetNanos, int passIntervalTicks, Consumer<Block> onIceMelted) {
+        this.plugin = plugin;
+        this.grid = grid;
+        this.onIceMelted = onIceMelted;
+        this.budgetNanos = Math.max(50_000L, budgetNanos);
+        this.passIntervalTicks = Math.max(1, passIntervalTicks);
+        this.meltFilter = ChunkScanFilter.builder()
+                .add(Material.SNOW)
+                .add(Material.SNOW_BLOCK)
+                .add(Material.ICE)
+                .build();
+    }
+
+    void start() {
+        if (task != null) return;
+        task = Bukkit.getScheduler().runTaskTimer(plugin, this::tick, 1L, 1L);
+    }
+
+    void stop() {
+        if (task != null) {
+            try { task.cancel(); } catch (Throwable ignored) {}
+            task = null;
+        }
+        passQueue.clear();
+        applyQueue.clear();
+        states.clear();
+    }
+
+    /** Лимит таяний за проход по типу обогревателя. */
+    static int maxMeltsFor(CustomHeatSource s) {
+        return s.getHeaterType().getMaxMeltsPerPass();
+    }
+
+    /**
+     * Обогреватель эффективно активен и его чанк загружен: если ему пора и есть что проверять,
+     * он встаёт в очередь проходов. Пока предыдущий план ищется или применяется, новый не начинается.
+     */
+    void request(CustomHeatSource s, World w) {
+        MeltState st = states.get(s);
+        if (st == null) {
+            st = new MeltState(s, w.getMinHeight(), w.getMaxHeight());
+            states.put(s, st);
+        }
+        if (st.queued || st.planning || st.applying || tickNo < st.nextPassTick || st.isIdle()) return;
+        st.queued = true;
+        passQueue.add(st);
+    }
+
+    private void tick() {
+        tickNo++;
+        if (applyQueue.isEmpty() && passQueue.isEmpty()) {
+            lastTickNanos = 0L;
+            return;
+        }
+        long start = System.nanoTime();
+        long deadline = start + budgetNanos;
+
+        // 1) применение найденного — по кругу, порциями по APPLY_SLICE
+        MeltPlan plan;
+        while (System.nanoTime() < deadline && (plan = applyQueue.poll()) != null) {
+            MeltState st = plan.state;
+            World w = Bukkit.getWorld(st.worldId);
+            if (w == null || states.get(plan.source) != st || !plan.source.isActive()) {
+                st.applying = false;
+                // топливо кончилось посреди применения: неприменённые колонки снова нерасчищены,
+                // иначе после дозаправки их снег/лёд так и останется
+                if (states.get(plan.source) == st) st.unclearTargets(plan);
+                continue;
+            }
+            int end = Math.min(plan.count, plan.next + APPLY_SLICE);
+            while (plan.next < end) {
+                if (applyOne(w, plan.targets[plan.next], plan.kinds[plan.next])) meltedTotal++;
+                plan.next++;
+            }
+            if (plan.next < plan.count) applyQueue.add(plan);
+            else st.applying = false;
+        }
+
+        // 2) новые проходы (снимки чанков) — по кругу
+        MeltState st;
+        while (System.nanoTime() < deadline && (st = passQueue.poll()) != null) {
+            st.queued = false;
+            if (states.get(st.source) != st || !st.source.isActive()) continue;
+            World w = Bukkit.getWorld(st.worldId);
+            if (w == null || !w.isChunkLoaded(st.source.getBlockX() >> 4, st.source.getBlockZ() >> 4)) continue;
+            startPass(st, w);
+        }
+        lastTickNanos = System.nanoTime() - start;
+    }
+
+    private void startPass(MeltState st, World w) {
+        st.nextPassTick = tickNo + passIntervalTicks;
+        MeltPlan plan = st.collect(w);
+        if (plan == null) return;
+        plan.budget = maxMeltsFor(st.source);
+
+        WorkerPool pool = plugin.getWorkerPool();
+        st.planning = true;
+        planning++;
+        if (pool != null && !pool.isShutdown() && pool.submit(() -> {
+            findTargetsSafe(plan);
+            try {
+                Bukkit.getScheduler().runTask(plugin, () -> accept(plan));
+            } catch (Throwable ignored) {
+                // плагин выключается — результат больше не нужен
+            }
+        })) {
+            return;
+        }
+        // пул недоступен — тот же поиск синхронно
+        findTargetsSafe(plan);
+        accept(plan);
+    }
+
+    // ошибка поиска не должна оставить обогреватель в planning навсегда — план всё равно уходит в accept
+    private void findTargetsSafe(MeltPlan plan) {
+        try {
+            findTargets(plan);
+        } catch (Throwable t) {
+            plan.failed = true;
+            plan.count = 0;
+            plan.snapshots = null;
+            plugin.getLogger().log(Level.WARNING, "Ошибка поиска снега/льда для обогревателя", t);
+        }
+    }
+
+    /** Найдено, но ещё не применено (блоков). */
+    long getBacklogBlocks() {
+        long n = 0;
+        for (MeltPlan p : applyQueue) n += p.count - p.next;
+        return n;
+    }
+
+    int getQueuedHeaters() { return passQueue.size(); }
+    int getPlanning() { return planning; }
+    long getLastTickNanos() { return lastTickNanos; }
+    long getMeltedTotal() { return meltedTotal; }
+    long getBudgetNanos() { return budgetNanos; }
+
+    /** В колонке (x, z) мог появиться снег/лёд. */
+    void markColumn(UUID world, int x, int z) {
+        List<CustomHeatSource> candidates = grid.candidates(world, x, z);
+        if (candidates == null) return;
+        for (int i = 0, n = candidates.size(); i < n; i++) {
+            MeltState st = states.get(candidates.get(i));
+            if (st != null) st.markColumn(x, z);
+        }
+    }
+
+    /** Чанк загрузился: его колонки у всех задетых обогревателей снова требуют проверки. */
+    void markChunk(UUID world, int cx, int cz) {
+        // чанк целиком лежит в одной ячейке сетки (64 кратно 16)
+        List<CustomHeatSource> candidates = grid.candidates(world, cx << 4, cz << 4);
+        if (candidates == null) return;
+        for (int i = 0, n = candidates.size(); i < n; i++) {
+            MeltState st = states.get(candidates.get(i));
+            if (st != null) st.markRect(cx << 4, (cx << 4) + 15, cz << 4, (cz << 4) + 15);
+        }
+    }
+
+    void forget(CustomHeatSource s) {
+        states.remove(s);
+    }
+
+    // ---------------- поиск (фоновый поток; только снимки и поля плана) ----------------
+
+    // рабочие буферы поиска — свои у каждого потока пула, растут по мере надобности и живут между планами
+    private static final class Scratch {
+        long[] targets = new long[256];
+        byte[] kinds = new byte[256];
+        int[] incomplete = new int[64];
+    }
+
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+    private static final long[] NO_TARGETS = new long[0];
+    private static final byte[] NO_KINDS = new byte[0];
+
+    private void findTargets(MeltPlan plan) {
+        MeltState st = plan.state;
+        Scratch scratch = SCRATCH.get();
+        long[] targets = scratch.targets;
+        byte[] kinds = scratch.kinds;
+        int count = 0;
+        int[] incomplete = scratch.incomplete;
+        int incompleteCount = 0;
+        // вся высота куба обогревателя в пределах мира
+        int top = Math.min(st.maxY - 1, st.centerY + st.radius);
+        int bottom = Math.max(st.minY, st.centerY - st.radius);
+
+        for (int c = 0; c < plan.chunkCount; c++) {
+            ChunkSnapshot snap = plan.snapshots[c];
+            int[] cols = plan.columns[c];
+            int n = plan.columnCounts[c];
+            // по палитрам: в чанке нет ни снега, ни льда — все его колонки расчищены
+            if (!meltFilter.mayContain(snap)) continue;
+            for (int i = 0; i < n; i++) {
+                int idx = cols[i];
+                if (count >= plan.budget) {
+                    // лимит прохода исчерпан — остальные колонки останутся нерасчищенными
+                    if (incompleteCount == incomplete.length) scratch.incomplete = incomplete = Arrays.copyOf(incomplete, incompleteCount << 1);
+                    incomplete[incompleteCount++] = idx;
+                    continue;
+                }
+                int x = st.originX + idx / st.side;
+                int z = st.originZ + idx % st.side;
+                int lx = x & 15, lz = z & 15;
+
+                for (int y = top; y >= bottom; y--) {
+                    if (ChunkScanFilter.isSectionEmpty(snap, y, st.minY)) {
+                        // к верхнему блоку секции ниже (y-- в заголовке цикла)
+                        y = st.minY + (((y - st.minY) >> 4) << 4);
+                        continue;
+                    }
+                    Material mt = snap.getBlockType(lx, y, lz);
+                    byte kind;
+                    if (mt == Material.SNOW) kind = KIND_SNOW;
+                    else if (mt == Material.SNOW_BLOCK) kind = KIND_SNOW_BLOCK;
+                    else if (mt == Material.ICE) kind = KIND_ICE;
+                    else continue;
+                    if (count >= plan.budget) {
+                        if (incompleteCount == incomplete.length) scratch.incomplete = incomplete = Arrays.copyOf(incomplete, incompleteCount << 1);
+                        incomplete[incompleteCount++] = idx;
+                        break;
+                    }
+                    if (count == targets.length) {
+                        scratch.targets = targets = Arrays.copyOf(targets, count << 1);
+                        scratch.kinds = kinds = Arrays.copyOf(kinds, count << 1);
+                    }
+                    targets[count] = BlockKeys.blockKey(x, y, z);
+                    kinds[count] = kind;
+                    count++;
+                }
+            }
+        }
+
+        // план живёт до применения в основном потоке — в него уходит копия точного размера, буферы остаются потоку
+        plan.targets = count == 0 ? NO_TARGETS : Arrays.copyOf(targets, count);
+        plan.kinds = count == 0 ? NO_KINDS : Arrays.copyOf(kinds, count);
+        plan.count = count;
+        plan.incomplete = incompleteCount == 0 ? null : Arrays.copyOf(incomplete, incompleteCount);
+        plan.incompleteCount = incompleteCount;
+        // снимки больше не нужны
+        plan.snapshots = null;
+    }
+
+    // ---------------- применение (основной поток) ----------------
+
+    private void accept(MeltPlan plan) {
+        MeltState st = plan.state;
+        st.planning = false;
+        planning--;
+        if (states.get(plan.source) != st) return; // обогреватель удалён
+        if (plan.failed) {
+            // колонки плана не проверены — вернуть их курсору
+            for (int c = 0; c < plan.chunkCount; c++) {
+                for (int i = 0; i < plan.columnCounts[c]; i++) st.unclear(plan.columns[c][i]);
+            }
+            return;
+        }
+        for (int i = 0; i < plan.incompleteCount; i++) st.unclear(plan.incomplete[i]);
+        if (plan.count > 0) {
+            st.applying = true;
+            applyQueue.add(plan);
+        }
+    }
+
+    private boolean applyOne(World w, long key, byte kind) {
+        int x = BlockKeys.blockX(key), y = BlockKeys.blockY(key), z = BlockKeys.blockZ(key);
+        if (!w.isChunkLoaded(x >> 4, z >> 4)) return false;
+        Material expected = kind == KIND_ICE ? Material.ICE : (kind == KIND_SNOW_BLOCK ? Material.SNOW_BLOCK : Material.SNOW);
+        // блок мог измениться с момента снимка
+        if (w.getType(x, y, z) != expected) return false;
+        try {
+            Block b = w.getBlockAt(x, y, z);
+            b.setType(kind == KIND_ICE ? Material.WATER : Material.AIR, false);
+            if (kind == KIND_ICE) onIceMelted.accept(b);
+            return true;
+        } catch (Throwable ignored) {
+            return false;
+        }
+    }
+
+    // ---------------- состояние обогревателя ----------------
+
+    /** Снимки чанков и найденные цели одного прохода. */
+    static final class MeltPlan {
+        final CustomHeatSource source;
+        final MeltState state;
+        int budget;
+
+        // вход (заполняется в основном потоке)
+        ChunkSnapshot[] snapshots = new ChunkSnapshot[MAX_CHUNKS_PER_PLAN];
+        final int[][] columns = new int[MAX_CHUNKS_PER_PLAN][];
+        final int[] columnCounts = new int[MAX_CHUNKS_PER_PLAN];
+        int chunkCount;
+
+        // результат (заполняется в фоновом потоке)
+        long[] targets;
+        byte[] kinds;
+        int count;
+        int[] incomplete;
+        int incompleteCount;
+        boolean failed;
+
+        // применение
+        int next;
+
+        MeltPlan(CustomHeatSource source, MeltState state) {
+            this.source = source;
+            this.state = state;
+        }
+    }
+
+    static final class MeltState {
+        final CustomHeatSource source;
+        final UUID worldId;
+        final int centerY;
+        final int radius;
+        final int originX;
+        final int originZ;
+        final int side;
+        final int total;
+        final int minY;
+        final int maxY;
+
+        // бит = колонка расчищена (или взята в текущий план, или чанк не загружен — его «испачкает» загрузка)
+        final long[] cleared;
+        int clearedCount;
+        int cursor;
+
+        // кольцевой буфер индексов колонок, испачканных событиями
+        final int[] dirty = new int[DIRTY_CAPACITY];
+        int dirtyHead;
+        int dirtySize;
+
+        boolean queued;
+        boolean planning;
+        boolean applying;
+        long nextPassTick;
+
+        MeltState(CustomHeatSource s, int minY, int maxY) {
+            this.source = s;
+            this.worldId = s.getWorldId();
+            this.centerY = s.getBlockY();
+            this.radius = s.getRadius();
+            this.originX = s.getBlockX() - radius;
+            this.originZ = s.getBlockZ() - radius;
+            this.side = 2 * radius + 1;
+            this.total = side * side;
+            this.minY = minY;
+            this.maxY = maxY;
+            this.cleared = new long[(total + 63) >>> 6];
+        }
+
+        boolean isIdle() {
+            return clearedCount == total && dirtySize == 0;
+        }
+
+        private boolean isCleared(int idx) {
+            return (cleared[idx >>> 6] & (1L << idx)) != 0;
+        }
+
+        private void setCleared(int idx) {
+            long bit = 1L << idx;
+            if ((cleared[idx >>> 6] & bit) == 0) {
+                cleared[idx >>> 6] |= bit;
+                clearedCount++;
+            }
+        }
+
+        boolean unclear(int idx) {
+            long bit = 1L << idx;
+            if ((cleared[idx >>> 6] & bit) == 0) return false;
+            cleared[idx >>> 6] &= ~bit;
+            clearedCount--;
+            return true;
+        }
+
+        // колонки ещё не применённых целей плана (plan.next..count)
+        void unclearTargets(MeltPlan plan) {
+            for (int i = plan.next; i < plan.count; i++) {
+                long key = plan.targets[i];
+                int dx = BlockKeys.blockX(key) - originX, dz = BlockKeys.blockZ(key) - originZ;
+                if (dx >= 0 && dz >= 0 && dx < side && dz < side) unclear(dx * side + dz);
+            }
+        }
+
+        void markColumn(int x, int z) {
+            int dx = x - originX, dz = z - originZ;
+            if (dx < 0 || dz < 0 || dx >= side || dz >= side) return;
+            int idx = dx * side + dz;
+            if (!unclear(idx)) return;
+            if (dirtySize < DIRTY_CAPACITY) {
+                dirty[(dirtyHead + dirtySize) % DIRTY_CAPACITY] = idx;
+                dirtySize++;
+            }
+            // буфер полон — колонку подберёт курсор
+        }
+
+        void markRect(int minX, int maxX, int minZ, int maxZ) {
+            int fromX = Math.max(minX, originX) - originX, toX = Math.min(maxX, originX + side - 1) - originX;
+            int fromZ = Math.max(minZ, originZ) - originZ, toZ = Math.min(maxZ, originZ + side - 1) - originZ;
+            for (int dx = fromX; dx <= toX; dx++) {
+                for (int dz = fromZ; dz <= toZ; dz++) unclear(dx * side + dz);
+            }
+        }
+
+        /**
+         * Набирает план: сначала чанки колонок из событий, затем по курсору. Взятые колонки сразу
+         * помечаются расчищенными — событие во время поиска снова их «испачкает».
+         * @return null если брать нечего
+         */
+        MeltPlan collect(World w) {
+            MeltPlan plan = new MeltPlan(source, this);
+            while (dirtySize > 0 && plan.chunkCount < MAX_CHUNKS_PER_PLAN) {
+                int idx = dirty[dirtyHead];
+                dirtyHead = (dirtyHead + 1) % DIRTY_CAPACITY;
+                dirtySize--;
+                if (isCleared(idx)) continue;
+                addChunkOf(w, plan, idx);
+            }
+            while (clearedCount < total && plan.chunkCount < MAX_CHUNKS_PER_PLAN) {
+                int idx = nextUncleared(cursor);
+                if (idx < 0) break;
+                addChunkOf(w, plan, idx);
+                cursor = idx + 1 < total ? idx + 1 : 0;
+            }
+            return plan.chunkCount > 0 ? plan : null;
+        }
+
+        // берёт в план все нерасчищенные колонки квадрата в чанке колонки idx
+        private void addChunkOf(World w, MeltPlan plan, int idx) {
+            int cx = (originX + idx / side) >> 4;
+            int cz = (originZ + idx % side) >> 4;
+            int fromX = Math.max(cx << 4, originX) - originX, toX = Math.min((cx << 4) + 15, originX + side - 1) - originX;
+            int fromZ = Math.max(cz << 4, originZ) - originZ, toZ = Math.min((cz << 4) + 15, originZ + side - 1) - originZ;
+
+            boolean loaded = w.isChunkLoaded(cx, cz);
+            ChunkSnapshot snap = null;
+            if (loaded) {
+                try {
+                    snap = w.getChunkAt(cx, cz).getChunkSnapshot(false, false, false);
+                } catch (Throwable ignored) {}
+            }
+
+            int[] cols = snap != null ? new int[(toX - fromX + 1) * (toZ - fromZ + 1)] : null;
+            int n = 0;
+            for (int dx = fromX; dx <= toX; dx++) {
+                for (int dz = fromZ; dz <= toZ; dz++) {
+                    int i = dx * side + dz;
+                    if (isCleared(i)) continue;
+                    setCleared(i);
+                    if (cols != null) cols[n++] = i;
+                }
+            }
+            // незагруженный чанк: колонки считаются расчищенными до его загрузки
+            if (snap == null || n == 0) return;
+            int c = plan.chunkCount++;
+            plan.snapshots[c] = snap;
+            plan.columns[c] = cols;
+            plan.columnCounts[c] = n;
+        }
+
+        private int nextUncleared(int from) {
+            if (from >= total) from = 0;
+            int i = nextClearBit(from, total);
+            if (i < 0 && from > 0) i = nextClearBit(0, from);
+            return i;
+        }
+
+        // первый нулевой бит в [from, to) или -1
+        private int nextClearBit(int from, int to) {
+            int wi = from >>> 6;
+            long word = ~cleared[wi] & (-1L << from);
+            while (true) {
+                if (word != 0) {
+                    int i = (wi << 6) + Long.numberOfTrailingZeros(word);
+                    return i < to ? i : -1;
+                }
+                if (++wi >= cleared.length || (wi << 6) >= to) return -1;
+                word = ~cleared[wi];
+            }
+        }
+    }
+}
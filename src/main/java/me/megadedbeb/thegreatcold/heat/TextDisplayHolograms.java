@@ -0,0 +1,84 @@
+package me.megadedbeb.thegreatcold.heat;
+
+import org.bukkit.Location;
+import org.bukkit.NamespacedKey;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.entity.ArmorStand;
+import org.bukkit.entity.Display;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.TextDisplay;
+import org.bukkit.persistence.PersistentDataType;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Табличка из одной TextDisplay с двумя строками. Сущность не сохраняется с чанком (persistent = false):
+ * при выгрузке чанка она исчезает сама, при загрузке создаётся заново — искать и чистить дубликаты не нужно.
+ */
+final class TextDisplayHolograms implements HologramBackend {
+    private final NamespacedKey holoKey;
+
+    TextDisplayHolograms(NamespacedKey holoKey) {
+        this.holoKey = holoKey;
+    }
+
+    @Override
+    public boolean isAttached(CustomHeatSource s) {
+        Entity e = s.getNameLineEntity();
+        return e instanceof TextDisplay && e.isValid();
+    }
+
+    @Override
+    public void show(CustomHeatSource s, Block block, String sourceKey, String name, String fuelLine) {
+        String text = name + "\n" + fuelLine;
+        Entity current = s.getNameLineEntity();
+        if (current instanceof TextDisplay td && td.isValid()) {
+            if (!name.equals(s.getRenderedName()) || !fuelLine.equals(s.getRenderedFuelLine())) {
+                try { td.setText(text); } catch (Throwable ignored) {}
+            }
+            return;
+        }
+
+        World w = block.getWorld();
+        Location loc = new Location(w, block.getX() + 0.5, block.getY() + 1.15, block.getZ() + 0.5);
+        try {
+            TextDisplay td = w.spawn(loc, TextDisplay.class, d -> {
+                d.setPersistent(false);
+                d.setBillboard(Display.Billboard.CENTER);
+                d.setText(text);
+                d.getPersistentDataContainer().set(holoKey, PersistentDataType.STRING, sourceKey + "|display");
+            });
+            s.setNameLineEntity(td);
+            s.setFuelLineEntity(null);
+        } catch (Throwable ignored) {}
+    }
+
+    @Override
+    public void remove(CustomHeatSource s) {
+        try {
+            Entity e = s.getNameLineEntity();
+            if (e != null && e.isValid()) e.remove();
+        } catch (Throwable ignored) {}
+        s.setNameLineEntity(null);
+        s.setFuelLineEntity(null);
+        s.setHologramIds(null, null);
+    }
+
+    @Override
+    public void release(CustomHeatSource s) {
+        remove(s);
+    }
+
+    @Override
+    public void onEntitiesLoad(List<Entity> entities, Function<String, CustomHeatSource> owner) {
+        for (Entity e : entities) {
+            // прежние стойки для брони и случайно сохранённые таблички — больше не нужны
+            if (!(e instanceof ArmorStand) && !(e instanceof TextDisplay && e.isPersistent())) continue;
+            try {
+                if (e.getPersistentDataContainer().has(holoKey, PersistentDataType.STRING)) e.remove();
+            } catch (Throwable ignored) {}
+        }
+    }
+}
@@ -4,6 +4,7 @@ import me.megadedbeb.thegreatcold.TheGreatColdPlugin;
 import me.megadedbeb.thegreatcold.freeze.FreezeManager;
 import me.megadedbeb.thegreatcold.heat.CustomHeatManager;
 import me.megadedbeb.thegreatcold.heat.HeatSourceManager;
+import me.megadedbeb.thegreatcold.util.MaterialTable;
 import me.megadedbeb.thegreatcold.util.NmsHelper;
 import org.bukkit.Location;
 import org.bukkit.Material;
@@ -69,7 +70,7 @@ public class BedTradeListener implements Listener {
         if (clicked == null) return;
 
         // Запрет установки точки возрождения (правый клик по кровати)
-        if (clicked.getType().name().endsWith("_BED")) {
+        if (MaterialTable.isBed(clicked.getType())) {
             int globalStageId = TheGreatColdPlugin.getInstance().getStageManager().getCurrentStage().id();
 
             // Full deny setting spawn on stage 3
@@ -6,8 +6,10 @@ import org.bukkit.block.Block;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.Listener;
 import org.bukkit.event.block.*;
+import org.bukkit.event.entity.EntityExplodeEvent;
 import org.bukkit.event.inventory.FurnaceBurnEvent;
 import org.bukkit.event.inventory.FurnaceExtractEvent;
+import org.bukkit.event.inventory.FurnaceStartSmeltEvent;
 import org.bukkit.scheduler.BukkitRunnable;
 
 public class BlockHeatListener implements Listener {
@@ -17,6 +19,8 @@ public class BlockHeatListener implements Listener {
     @EventHandler
     public void onBlockPlace(BlockPlaceEvent e) {
         Block block = e.getBlockPlaced();
+        heatManager.markChunkModified(block);
+        heatManager.forgetFurnaceLit(block);
         // либо регистрируем, либо удаляем в зависимости от состояния
         if (heatManager.providesHeat(block)) heatManager.registerHeatSource(block);
         else heatManager.removeHeatSource(block);
@@ -25,21 +29,35 @@ public class BlockHeatListener implements Listener {
     @EventHandler
     public void onBlockBreak(BlockBreakEvent e) {
         Block block = e.getBlock();
+        heatManager.markChunkModified(block);
+        heatManager.forgetFurnaceLit(block);
         heatManager.removeHeatSource(block);
     }
 
     @EventHandler
     public void onBlockBurn(BlockBurnEvent e) {
         Block block = e.getBlock();
+        heatManager.forgetFurnaceLit(block);
         heatManager.removeHeatSource(block);
     }
 
     @EventHandler
     public void onBlockPhysics(BlockPhysicsEvent e) {
-        Block block = e.getBlock();
-        // При обновлениях блока проверяем его текущее состояние
-        if (heatManager.providesHeat(block)) heatManager.registerHeatSource(block);
-        else heatManager.removeHeatSource(block);
+        // Редстоун, вода и песок дают тысячи таких событий за тик: здесь только фильтр,
+        // а проверка состояния — один раз за тик на позицию (см. HeatSourceManager.onBlockPhysics)
+        heatManager.onBlockPhysics(e.getBlock(), e.getChangedType(), e.getSourceBlock());
+    }
+
+    @EventHandler
+    public void onBlockExplode(BlockExplodeEvent e) {
+        if (e.isCancelled()) return;
+        for (Block b : e.blockList()) heatManager.markChunkModified(b);
+    }
+
+    @EventHandler
+    public void onEntityExplode(EntityExplodeEvent e) {
+        if (e.isCancelled()) return;
+        for (Block b : e.blockList()) heatManager.markChunkModified(b);
     }
 
     @EventHandler
@@ -57,8 +75,14 @@ public class BlockHeatListener implements Listener {
 
     @EventHandler
     public void onFurnaceBurn(FurnaceBurnEvent e) {
-        Block block = e.getBlock();
-        if (block != null && heatManager.providesHeat(block)) heatManager.registerHeatSource(block);
+        if (e.isCancelled()) return;
+        // топливо сгорело -> печь горит (block-data Lit сервер выставит в этом же тике)
+        if (e.isBurning() && e.getBurnTime() > 0) heatManager.updateFurnaceLit(e.getBlock(), true);
+    }
+
+    @EventHandler
+    public void onFurnaceStartSmelt(FurnaceStartSmeltEvent e) {
+        heatManager.refreshFurnaceLit(e.getBlock());
     }
 
     @EventHandler
@@ -4,9 +4,11 @@ import me.megadedbeb.thegreatcold.TheGreatColdPlugin;
 import me.megadedbeb.thegreatcold.config.ConfigManager;
 import me.megadedbeb.thegreatcold.data.DataManager;
 import me.megadedbeb.thegreatcold.heat.HeatSourceManager;
+import me.megadedbeb.thegreatcold.util.ChunkScanFilter;
 import me.megadedbeb.thegreatcold.util.NmsHelper;
 import org.bukkit.Bukkit;
 import org.bukkit.Chunk;
+import org.bukkit.ChunkSnapshot;
 import org.bukkit.Material;
 import org.bukkit.Sound;
 import org.bukkit.World;
@@ -40,6 +42,8 @@ public class StageManager {
     private final List<BukkitTask> scheduledDecayTasks = Collections.synchronizedList(new ArrayList<>());
     private final Set<String> scheduledLavaChunks = Collections.synchronizedSet(new HashSet<>());
     private BukkitTask lavaSchedulerTask = null;
+    // предфильтр скана лавы: все уровни лавы (источник и течение)
+    private final ChunkScanFilter lavaScanFilter = ChunkScanFilter.builder().add(Material.LAVA).build();
 
     // pending: key = world:x:y:z -> scheduledTimeMillis
     private final Map<String, Long> pendingExtinguish = Collections.synchronizedMap(new HashMap<>());
@@ -51,7 +55,7 @@ public class StageManager {
         this.heat = heat;
 
         loadStageState();
-        heat.scanWorldForHeatSources();
+        // индекс природных источников заполняет сам HeatSourceManager — от этапа он не зависит
         startCampfireTask();
 
         Bukkit.getPluginManager().registerEvents(new Listener() {
@@ -106,7 +110,9 @@ public class StageManager {
                         .forEach(p -> p.sendMessage("§b[Великий холод] Этап " + stageId + " начался!"));
             }
 
-            heat.scanWorldForHeatSources();
+            // Индекс источников тепла не пересобираем: от этапа зависят только погода, лава
+            // и тушение костров (campfireTask), а погасшие костры он сам убирает из индекса.
+            // Полная пересборка — только вручную: /greatcold rescanheat
         } catch (Throwable t) {
             plugin.getLogger().severe("Ошибка при смене этапа холода: " + t);
             t.printStackTrace();
@@ -338,10 +344,27 @@ public class StageManager {
         if (world == null) return 0;
         int minY = world.getMinHeight();
         int maxY = world.getMaxHeight();
+
+        // снимок дешевле ~100k вызовов getBlock; чанки без лавы и пустые секции отсекаем по палитрам
+        ChunkSnapshot snapshot;
+        try {
+            snapshot = chunk.getChunkSnapshot(false, false, false);
+        } catch (Throwable t) {
+            return 0;
+        }
+        if (!lavaScanFilter.mayContain(snapshot)) return 0;
+
+        int baseX = chunk.getX() << 4;
+        int baseZ = chunk.getZ() << 4;
         for (int x = 0; x < 16; x++) {
             for (int z = 0; z < 16; z++) {
                 for (int y = minY; y < maxY; y++) {
-                    Block b = chunk.getBlock(x, y, z);
+                    if (((y - minY) & 15) == 0 && ChunkScanFilter.isSectionEmpty(snapshot, y, minY)) {
+                        y += 15;
+                        continue;
+                    }
+                    if (snapshot.getBlockType(x, y, z) != Material.LAVA) continue;
+                    Block b = world.getBlockAt(baseX + x, y, baseZ + z);
                     try {
                         if (b.getType() == Material.LAVA && NmsHelper.isOpenToSky(b)) {
                             long delaySeconds = 420L + rnd.nextLong(0, 481L); // 420..900
@@ -379,7 +402,7 @@ public class StageManager {
         data.setStageEndMillis(stageEndMillis);
         data.setAutoStageFlag(isAutoStage);
         data.setStageInfiniteFlag(stageInfinite);
-        data.saveAll();
+        data.markDirty();
     }
 
     public void startAutoStageIfEnabled() {
@@ -0,0 +1,39 @@
+package me.megadedbeb.thegreatcold.util;
+
+/**
+ * Упаковка координат в long для примитивных индексов (без строк вида "world:x:y:z").
+ *
+ * Позиция блока: x (26 бит) | z (26 бит) | y (12 бит) — та же раскладка, что у BlockPos в Minecraft.
+ * Чанк: cx в старших 32 битах, cz в младших.
+ */
+public final class BlockKeys {
+    private BlockKeys() {}
+
+    public static long blockKey(int x, int y, int z) {
+        return ((long) (x & 0x3FFFFFF) << 38) | ((long) (z & 0x3FFFFFF) << 12) | (y & 0xFFFL);
+    }
+
+    public static int blockX(long key) { return (int) (key >> 38); }
+
+    public static int blockY(long key) { return (int) (key << 52 >> 52); }
+
+    public static int blockZ(long key) { return (int) (key << 26 >> 38); }
+
+    public static long chunkKey(int cx, int cz) {
+        return ((long) cx << 32) | (cz & 0xFFFFFFFFL);
+    }
+
+    public static int chunkX(long key) { return (int) (key >> 32); }
+
+    public static int chunkZ(long key) { return (int) key; }
+
+    /** Ключ секции чанка 16x16x16 (cx, sectionY, cz) — та же раскладка, что у блока. */
+    public static long sectionKey(int cx, int sy, int cz) {
+        return blockKey(cx, sy, cz);
+    }
+
+    /** Ключ чанка, в котором лежит блок с мировыми координатами x/z. */
+    public static long chunkKeyOfBlock(int x, int z) {
+        return chunkKey(x >> 4, z >> 4);
+    }
+}
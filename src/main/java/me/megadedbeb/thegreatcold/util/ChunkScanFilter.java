@@ -0,0 +1,139 @@
+package me.megadedbeb.thegreatcold.util;
+
+import org.bukkit.Chunk;
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.Material;
+import org.bukkit.block.BlockFace;
+import org.bukkit.block.data.Ageable;
+import org.bukkit.block.data.BlockData;
+import org.bukkit.block.data.Directional;
+import org.bukkit.block.data.Levelled;
+import org.bukkit.block.data.Lightable;
+import org.bukkit.block.data.Waterlogged;
+import org.bukkit.block.data.type.Campfire;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Предфильтр для полных сканов чанка: по палитрам блоков (contains) отвечает,
+ * может ли в чанке вообще быть хоть один из целевых блоков, и позволяет пропускать
+ * пустые (только воздух) секции 16x16x16.
+ *
+ * Bukkit не даёт палитру отдельной секции, поэтому проверка по состояниям — на весь чанк,
+ * а внутри чанка секции отсекаются по isSectionEmpty.
+ *
+ * contains сравнивает точные состояния блока, поэтому цели задаются перечислением
+ * состояний (facing / lit / waterlogged / level / age). MultipleFacing не перебирается —
+ * для огня это значит «только напольный огонь», настенный ловят быстрый скан и события.
+ *
+ * Экземпляр неизменяем и может использоваться из фоновых потоков.
+ */
+public final class ChunkScanFilter {
+    private final BlockData[] targets;
+
+    private ChunkScanFilter(List<BlockData> targets) {
+        this.targets = targets.toArray(new BlockData[0]);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /** @return false если ни одного целевого состояния в чанке точно нет. */
+    public boolean mayContain(ChunkSnapshot snapshot) {
+        for (BlockData t : targets) {
+            if (snapshot.contains(t)) return true;
+        }
+        return false;
+    }
+
+    /** То же, но по живому чанку (только основной поток). */
+    public boolean mayContain(Chunk chunk) {
+        for (BlockData t : targets) {
+            if (chunk.contains(t)) return true;
+        }
+        return false;
+    }
+
+    /** Пустая ли секция, в которой лежит блок с высотой y (minY — нижняя граница мира). */
+    public static boolean isSectionEmpty(ChunkSnapshot snapshot, int y, int minY) {
+        try {
+            return snapshot.isSectionEmpty((y - minY) >> 4);
+        } catch (Throwable ignored) {
+            return false;
+        }
+    }
+
+    public int size() { return targets.length; }
+
+    public static final class Builder {
+        private final List<BlockData> targets = new ArrayList<>();
+
+        private Builder() {}
+
+        /** Все состояния материала. */
+        public Builder add(Material material) {
+            return add(material, d -> true);
+        }
+
+        /** Состояния материала, прошедшие фильтр (например, только горящие). */
+        public Builder add(Material material, Predicate<BlockData> keep) {
+            List<BlockData> states = new ArrayList<>();
+            try {
+                states.add(material.createBlockData());
+            } catch (Throwable ignored) {
+                return this;
+            }
+            BlockData base = states.get(0);
+            if (base instanceof Directional dir) {
+                BlockFace[] faces = dir.getFaces().toArray(new BlockFace[0]);
+                states = expand(states, faces.length, (d, i) -> ((Directional) d).setFacing(faces[i]));
+            }
+            if (base instanceof Lightable) {
+                states = expand(states, 2, (d, i) -> ((Lightable) d).setLit(i == 1));
+            }
+            if (base instanceof Waterlogged) {
+                states = expand(states, 2, (d, i) -> ((Waterlogged) d).setWaterlogged(i == 1));
+            }
+            if (base instanceof Campfire) {
+                states = expand(states, 2, (d, i) -> ((Campfire) d).setSignalFire(i == 1));
+            }
+            if (base instanceof Levelled lv) {
+                states = expand(states, lv.getMaximumLevel() + 1, (d, i) -> ((Levelled) d).setLevel(i));
+            }
+            if (base instanceof Ageable ag) {
+                states = expand(states, ag.getMaximumAge() + 1, (d, i) -> ((Ageable) d).setAge(i));
+            }
+            for (BlockData d : states) {
+                if (keep.test(d)) targets.add(d);
+            }
+            return this;
+        }
+
+        public ChunkScanFilter build() {
+            return new ChunkScanFilter(targets);
+        }
+
+        private interface Setter {
+            void set(BlockData data, int value);
+        }
+
+        private static List<BlockData> expand(List<BlockData> in, int variants, Setter setter) {
+            List<BlockData> out = new ArrayList<>(in.size() * Math.max(1, variants));
+            for (BlockData d : in) {
+                for (int i = 0; i < variants; i++) {
+                    BlockData copy = d.clone();
+                    try {
+                        setter.set(copy, i);
+                    } catch (Throwable ignored) {
+                        continue;
+                    }
+                    out.add(copy);
+                }
+            }
+            return out;
+        }
+    }
+}
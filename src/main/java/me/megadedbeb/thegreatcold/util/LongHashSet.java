@@ -0,0 +1,94 @@
+package me.megadedbeb.thegreatcold.util;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+/**
+ * Минимальное множество long с открытой адресацией (линейное пробирование), без упаковки ключей.
+ * Пустая ячейка помечается отдельным флагом, так что допустим любой ключ, включая 0.
+ * Не потокобезопасно — использовать только из основного потока.
+ */
+public final class LongHashSet {
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private long[] keys;
+    private boolean[] used;
+    private int mask;
+    private int size;
+    private int resizeAt;
+
+    public LongHashSet() {
+        this(16);
+    }
+
+    public LongHashSet(int expected) {
+        int cap = 16;
+        while (cap * LOAD_FACTOR < expected) cap <<= 1;
+        allocate(cap);
+    }
+
+    private void allocate(int cap) {
+        keys = new long[cap];
+        used = new boolean[cap];
+        mask = cap - 1;
+        resizeAt = (int) (cap * LOAD_FACTOR);
+    }
+
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    /** @return true если ключ добавлен (его не было). */
+    public boolean add(long key) {
+        int i = mix(key) & mask;
+        while (used[i]) {
+            if (keys[i] == key) return false;
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        used[i] = true;
+        if (++size > resizeAt) rehash(keys.length << 1);
+        return true;
+    }
+
+    public boolean contains(long key) {
+        int i = mix(key) & mask;
+        while (used[i]) {
+            if (keys[i] == key) return true;
+            i = (i + 1) & mask;
+        }
+        return false;
+    }
+
+    private void rehash(int newCap) {
+        long[] oldKeys = keys;
+        boolean[] oldUsed = used;
+        allocate(newCap);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (!oldUsed[i]) continue;
+            int j = mix(oldKeys[i]) & mask;
+            while (used[j]) j = (j + 1) & mask;
+            keys[j] = oldKeys[i];
+            used[j] = true;
+        }
+    }
+
+    public int size() { return size; }
+
+    public boolean isEmpty() { return size == 0; }
+
+    public void clear() {
+        if (size == 0) return;
+        Arrays.fill(used, false);
+        size = 0;
+    }
+
+    public void forEach(LongConsumer action) {
+        long[] ks = keys;
+        boolean[] us = used;
+        for (int i = 0; i < ks.length; i++) {
+            if (us[i]) action.accept(ks[i]);
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package me.megadedbeb.thegreatcold.util;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Минимальная хеш-таблица long -> V с открытой адресацией (линейное пробирование).
+ *
+ * Используется в горячих путях вместо HashMap&lt;String, ...&gt;: ключи не упаковываются
+ * в объекты, поиск не выделяет память. Значение null не допускается (null = пустая ячейка).
+ * Не потокобезопасна — использовать только из основного потока.
+ */
+public final class LongObjectHashMap<V> {
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private long[] keys;
+    private Object[] values;
+    private int mask;
+    private int size;
+    private int resizeAt;
+
+    public LongObjectHashMap() {
+        this(16);
+    }
+
+    public LongObjectHashMap(int expected) {
+        int cap = 16;
+        while (cap * LOAD_FACTOR < expected) cap <<= 1;
+        allocate(cap);
+    }
+
+    private void allocate(int cap) {
+        keys = new long[cap];
+        values = new Object[cap];
+        mask = cap - 1;
+        resizeAt = (int) (cap * LOAD_FACTOR);
+    }
+
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        int i = mix(key) & mask;
+        Object v;
+        while ((v = values[i]) != null) {
+            if (keys[i] == key) return (V) v;
+            i = (i + 1) & mask;
+        }
+        return null;
+    }
+
+    public boolean containsKey(long key) {
+        return get(key) != null;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value) {
+        if (value == null) throw new IllegalArgumentException("null values are not supported");
+        int i = mix(key) & mask;
+        Object v;
+        while ((v = values[i]) != null) {
+            if (keys[i] == key) {
+                values[i] = value;
+                return (V) v;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        values[i] = value;
+        if (++size > resizeAt) rehash(keys.length << 1);
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V remove(long key) {
+        int i = mix(key) & mask;
+        Object v;
+        while ((v = values[i]) != null) {
+            if (keys[i] == key) {
+                shiftBack(i);
+                size--;
+                return (V) v;
+            }
+            i = (i + 1) & mask;
+        }
+        return null;
+    }
+
+    /** Удаление без «надгробий»: сдвигаем назад элементы цепочки за удалённой ячейкой. */
+    private void shiftBack(int gap) {
+        int i = gap;
+        while (true) {
+            i = (i + 1) & mask;
+            Object v = values[i];
+            if (v == null) break;
+            int home = mix(keys[i]) & mask;
+            // элемент можно переместить в gap, если gap лежит на пути от home до i
+            if (((i - home) & mask) >= ((i - gap) & mask)) {
+                keys[gap] = keys[i];
+                values[gap] = v;
+                gap = i;
+            }
+        }
+        values[gap] = null;
+        keys[gap] = 0L;
+    }
+
+    private void rehash(int newCap) {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(newCap);
+        for (int i = 0; i < oldValues.length; i++) {
+            Object v = oldValues[i];
+            if (v == null) continue;
+            int j = mix(oldKeys[i]) & mask;
+            while (values[j] != null) j = (j + 1) & mask;
+            keys[j] = oldKeys[i];
+            values[j] = v;
+        }
+    }
+
+    public int size() { return size; }
+
+    public boolean isEmpty() { return size == 0; }
+
+    public void clear() {
+        if (size == 0) return;
+        Arrays.fill(values, null);
+        Arrays.fill(keys, 0L);
+        size = 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    public void forEachValue(Consumer<? super V> action) {
+        Object[] vs = values;
+        for (Object v : vs) {
+            if (v != null) action.accept((V) v);
+        }
+    }
+}
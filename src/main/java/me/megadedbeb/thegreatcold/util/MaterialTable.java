@@ -0,0 +1,89 @@
+package me.megadedbeb.thegreatcold.util;
+
+import me.megadedbeb.thegreatcold.heat.HeatSourceType;
+import org.bukkit.Material;
+import org.bukkit.Tag;
+
+/**
+ * Предрасчитанная классификация материалов по Material.ordinal().
+ *
+ * Раньше горячие пути (isOpenToSky, поджог у мегапечи, кровати, источники тепла)
+ * на каждом вызове разбирали имя материала строками. Теперь правила применяются один раз при включении
+ * плагина, а на горячем пути остаётся только чтение из массива — без аллокаций.
+ */
+public final class MaterialTable {
+    public static final int HEAT_SOURCE = 1;       // природный источник тепла (HeatSourceType)
+    public static final int SKY_TRANSPARENT = 1 << 1; // не перекрывает небо для isOpenToSky
+    public static final int FLAMMABLE = 1 << 2;    // может загореться от мегапечи
+    public static final int BED = 1 << 3;
+    public static final int AIR = 1 << 4;          // AIR / CAVE_AIR / VOID_AIR
+
+    private static byte[] flags;
+
+    private MaterialTable() {}
+
+    /** Строит таблицы. Вызывается один раз при включении плагина. */
+    public static synchronized void build() {
+        Material[] all = Material.values();
+        byte[] f = new byte[all.length];
+
+        for (Material m : all) {
+            int o = m.ordinal();
+            String name = m.name();
+            int bits = 0;
+            if (HeatSourceType.fromMaterial(m) != null) bits |= HEAT_SOURCE;
+            if (m == Material.AIR || m == Material.CAVE_AIR || m == Material.VOID_AIR) bits |= AIR;
+            if (isSkyTransparentName(name)) bits |= SKY_TRANSPARENT;
+            if (isFlammableName(name)) bits |= FLAMMABLE;
+            if (name.endsWith("_BED")) bits |= BED;
+            f[o] = (byte) bits;
+        }
+
+        try {
+            for (Material m : Tag.BEDS.getValues()) f[m.ordinal()] |= BED;
+        } catch (Throwable ignored) {}
+
+        flags = f;
+    }
+
+    private static byte[] flags() {
+        byte[] f = flags;
+        if (f == null) {
+            build();
+            f = flags;
+        }
+        return f;
+    }
+
+    public static boolean has(Material m, int flag) {
+        return m != null && (flags()[m.ordinal()] & flag) != 0;
+    }
+
+    public static boolean isHeatSource(Material m) { return has(m, HEAT_SOURCE); }
+
+    public static boolean isSkyTransparent(Material m) { return has(m, SKY_TRANSPARENT | AIR); }
+
+    public static boolean isFlammable(Material m) { return has(m, FLAMMABLE); }
+
+    public static boolean isBed(Material m) { return has(m, BED); }
+
+    // --- правила (применяются только при построении таблиц) ---
+
+    // листва, ковры, слой снега, ограды/ворота, двери, плиты/ступени/стены
+    private static boolean isSkyTransparentName(String n) {
+        return n.endsWith("_LEAVES")
+                || n.endsWith("_CARPET")
+                || n.equals("SNOW")
+                || n.contains("FENCE")
+                || n.endsWith("_DOOR")
+                || n.contains("SLAB")
+                || n.contains("STAIRS")
+                || n.contains("WALL");
+    }
+
+    private static boolean isFlammableName(String nm) {
+        return nm.endsWith("_LOG") || nm.endsWith("_WOOD") || nm.endsWith("_PLANKS")
+                || nm.endsWith("_LEAVES") || nm.endsWith("_WOOL") || nm.equals("HAY_BLOCK")
+                || nm.endsWith("_CARPET") || nm.equals("TNT");
+    }
+}
@@ -19,30 +19,10 @@ public class NmsHelper {
 
         for (int i = y + 1; i < maxY; i++) {
             Material up = world.getBlockAt(x, i, z).getType();
-            // Воздух/пустота — не блокирует
-            if (up == Material.AIR || up == Material.CAVE_AIR || up == Material.VOID_AIR) continue;
-
-            String n = up.name();
-
-            // Игнорируем "легкие" блоки — они НЕ считаются за перекрытие неба:
-            // - листья: *_LEAVES
-            // - ковры: *_CARPET
-            // - слой снега: SNOW (тонкий слой)
-            // - ограды / ворота: содержат FENCE (включая FENCE_GATE)
-            // - двери: *_DOOR
-            // - плиты/ступени/стены: SLAB / STAIRS / WALL (оставляем прежнее поведение)
-            if (n.endsWith("_LEAVES")
-                    || n.endsWith("_CARPET")
-                    || n.equals("SNOW")
-                    || n.contains("FENCE")
-                    || n.endsWith("_DOOR")
-                    || n.contains("SLAB")
-                    || n.contains("STAIRS")
-                    || n.contains("WALL")
-            ) {
-                // считаем как "прозрачное" для цели определения открытого неба
-                continue;
-            }
+            // Воздух/пустота и "легкие" блоки (листва, ковры, слой снега, ограды/ворота,
+            // двери, плиты/ступени/стены) НЕ считаются за перекрытие неба.
+            // Классификация предрасчитана в MaterialTable — здесь только чтение из массива.
+            if (MaterialTable.isSkyTransparent(up)) continue;
 
             // Во всех остальных случаях — найден блок, который действительно перекрывает небо
             return false;
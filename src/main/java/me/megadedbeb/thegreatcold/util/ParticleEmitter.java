@@ -0,0 +1,157 @@
+package me.megadedbeb.thegreatcold.util;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.Particle;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Отправка декоративных частиц только тем игрокам, кто рядом.
+ *
+ * World.spawnParticle рассылает пакет всем в радиусе 32 блоков, а вызывающий код звал его
+ * для каждого горящего обогревателя раз в секунду, даже если рядом никого нет. Здесь частицы
+ * отправляются каждому игроку отдельно (Player.spawnParticle) и только в пределах viewDistance;
+ * дальше fullDistance их количество линейно уменьшается (но не меньше одной). На тик действует
+ * общий лимит пакетов — сверх него частицы просто отбрасываются.
+ *
+ * Позиции игроков мира снимаются один раз за тик при первом запросе к этому миру,
+ * так что проверка «есть ли кому показывать» не трогает Bukkit API. Только основной поток.
+ */
+public final class ParticleEmitter {
+    private final Plugin plugin;
+    private final double viewDistSq;
+    private final double fullDist;
+    private final double fadeDist;
+    private final int budgetPerTick;
+
+    private final Map<UUID, Viewers> viewers = new HashMap<>();
+    private BukkitTask task;
+    private long tick;
+    private int sentThisTick;
+    private int lastTickPackets;
+    private long dropped;
+
+    public ParticleEmitter(Plugin plugin, int viewDistance, int fullDetailDistance, int budgetPerTick) {
+        this.plugin = plugin;
+        double view = Math.max(1, viewDistance);
+        this.viewDistSq = view * view;
+        this.fullDist = Math.min(view, Math.max(0, fullDetailDistance));
+        this.fadeDist = Math.max(1.0, view - fullDist);
+        this.budgetPerTick = Math.max(1, budgetPerTick);
+    }
+
+    public void start() {
+        if (task != null) return;
+        task = Bukkit.getScheduler().runTaskTimer(plugin, () -> {
+            tick++;
+            lastTickPackets = sentThisTick;
+            sentThisTick = 0;
+        }, 1L, 1L);
+    }
+
+    public void stop() {
+        if (task != null) {
+            try { task.cancel(); } catch (Throwable ignored) {}
+            task = null;
+        }
+        viewers.clear();
+    }
+
+    /** Есть ли в мире игрок в пределах видимости точки. */
+    public boolean hasViewers(World w, double x, double y, double z) {
+        Viewers v = viewersOf(w);
+        for (int i = 0; i < v.size; i++) {
+            if (distSq(v, i, x, y, z) <= viewDistSq) return true;
+        }
+        return false;
+    }
+
+    /** Аналог World.spawnParticle(p, loc, count, ox, oy, oz, extra) с отбором игроков и общим лимитом. */
+    public void emit(World w, Particle p, double x, double y, double z, int count,
+                     double ox, double oy, double oz, double extra) {
+        if (w == null || count <= 0) return;
+        Viewers v = viewersOf(w);
+        for (int i = 0; i < v.size; i++) {
+            double d2 = distSq(v, i, x, y, z);
+            if (d2 > viewDistSq) continue;
+            if (sentThisTick >= budgetPerTick) {
+                dropped++;
+                continue;
+            }
+            int n = count;
+            double d = Math.sqrt(d2);
+            if (d > fullDist) n = Math.max(1, (int) Math.round(count * (1.0 - (d - fullDist) / fadeDist)));
+            try {
+                v.players[i].spawnParticle(p, x, y, z, n, ox, oy, oz, extra);
+                sentThisTick++;
+            } catch (Throwable ignored) {}
+        }
+    }
+
+    public void emit(Location loc, Particle p, int count, double ox, double oy, double oz, double extra) {
+        if (loc == null) return;
+        emit(loc.getWorld(), p, loc.getX(), loc.getY(), loc.getZ(), count, ox, oy, oz, extra);
+    }
+
+    /** Пакетов частиц за последний завершённый тик. */
+    public int getLastTickPackets() { return lastTickPackets; }
+
+    /** Всего отправок, отброшенных из-за лимита на тик. */
+    public long getDroppedPackets() { return dropped; }
+
+    public int getBudgetPerTick() { return budgetPerTick; }
+
+    private static double distSq(Viewers v, int i, double x, double y, double z) {
+        double dx = v.x[i] - x, dy = v.y[i] - y, dz = v.z[i] - z;
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    private Viewers viewersOf(World w) {
+        Viewers v = viewers.computeIfAbsent(w.getUID(), k -> new Viewers());
+        if (v.tick == tick && v.valid) return v;
+        v.tick = tick;
+        v.valid = true;
+        v.size = 0;
+        List<Player> players = w.getPlayers();
+        v.ensure(players.size());
+        for (Player pl : players) {
+            Location l = pl.getLocation();
+            v.players[v.size] = pl;
+            v.x[v.size] = l.getX();
+            v.y[v.size] = l.getY();
+            v.z[v.size] = l.getZ();
+            v.size++;
+        }
+        // ссылки на вышедших игроков не держим дольше тика
+        for (int i = v.size; i < v.players.length && v.players[i] != null; i++) v.players[i] = null;
+        return v;
+    }
+
+    // снимок позиций игроков одного мира на текущий тик
+    private static final class Viewers {
+        long tick;
+        boolean valid;
+        int size;
+        Player[] players = new Player[0];
+        double[] x = new double[0];
+        double[] y = new double[0];
+        double[] z = new double[0];
+
+        void ensure(int n) {
+            if (players.length >= n) return;
+            int cap = Math.max(8, Integer.highestOneBit(Math.max(1, n - 1)) << 1);
+            players = new Player[cap];
+            x = new double[cap];
+            y = new double[cap];
+            z = new double[cap];
+        }
+    }
+}